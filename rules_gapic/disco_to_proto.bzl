@@ -19,11 +19,9 @@ def _set_args(arg, arg_name, args, inputs = None):
     if inputs != None:
         inputs.append(arg.files.to_list()[0])
 
-def _proto_from_disco_impl(ctx):
+def _converter_args(attr):
     arguments = []
     inputs = []
-
-    attr = ctx.attr
     _set_args(attr.src, "--discovery_doc_path=", arguments, inputs)
     _set_args(attr.previous_proto, "--previous_proto_file_path=", arguments, inputs)
     _set_args(",".join(attr.service_ignorelist), "--service_ignorelist=", arguments)
@@ -32,6 +30,11 @@ def _proto_from_disco_impl(ctx):
     _set_args(attr.enums_as_strings, "--enums_as_strings=", arguments)
     _set_args(attr.output_comments, "--output_comments=", arguments)
     _set_args(attr.input_config_path, "--input_config_path=", arguments, inputs)
+    return arguments, inputs
+
+def _proto_from_disco_impl(ctx):
+    attr = ctx.attr
+    arguments, inputs = _converter_args(attr)
 
     converter = ctx.executable.converter
     ctx.actions.run(
@@ -71,6 +74,60 @@ proto_from_disco = rule(
     implementation = _proto_from_disco_impl,
 )
 
+def _proto_and_configs_from_disco_impl(ctx):
+    attr = ctx.attr
+    arguments, inputs = _converter_args(attr)
+
+    # The converter writes all the outputs from a single conversion of the Discovery document,
+    # deriving their paths from the proto file path without its extension.
+    proto = ctx.outputs.proto
+    converter = ctx.executable.converter
+    ctx.actions.run(
+        inputs = inputs,
+        outputs = [
+            proto,
+            ctx.outputs.grpc_service_config,
+            ctx.outputs.gapic_yaml,
+            ctx.outputs.output_config,
+        ],
+        arguments = arguments + [
+            "--output_file_path=%s" % proto.path[:-len(".proto")],
+            "--output_config_path=%s" % (ctx.outputs.output_config.path if attr.output_config_suffix else ""),
+        ],
+        progress_message = "%s: `%s %s`" % (ctx.label, converter.path, " ".join(arguments)),
+        executable = converter,
+    )
+
+# Generates the proto file, the gRPC service config and the GAPIC yaml config of an API in a single
+# action, instead of one action (and one conversion of the Discovery document) for each of them
+# like proto_from_disco, grpc_service_config_from_disco and gapic_yaml_from_disco.
+proto_and_configs_from_disco = rule(
+    attrs = {
+        "src": attr.label(mandatory = True, allow_single_file = True),
+        "previous_proto": attr.label(mandatory = False, allow_single_file = True),
+        "service_ignorelist": attr.string_list(allow_empty = True, default = []),
+        "message_ignorelist": attr.string_list(allow_empty = True, default = []),
+        "relative_link_prefix": attr.string(mandatory = False, default = ""),
+        "enums_as_strings": attr.bool(mandatory = False, default = False),
+        "output_comments": attr.bool(mandatory = False, default = False),
+        "converter": attr.label(
+            default = Label("//:discovery_converter"),
+            executable = True,
+            cfg = "host",
+        ),
+        "input_config_path": attr.label(mandatory = False, allow_single_file = True),
+        # provide an empty string to omit the output config
+        "output_config_suffix": attr.string(mandatory = False, default = ".config.out"),
+    },
+    outputs = {
+        "proto": "%{name}.proto",
+        "grpc_service_config": "%{name}_grpc_service_config.json",
+        "gapic_yaml": "%{name}_gapic.yaml",
+        "output_config": "%{name}%{output_config_suffix}.json",
+    },
+    implementation = _proto_and_configs_from_disco_impl,
+)
+
 def grpc_service_config_from_disco(
         name,
         src,
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.discotoproto3converter.disco.DiscoveryNode;
+import com.google.cloud.discotoproto3converter.disco.Document;
+import com.google.cloud.discotoproto3converter.proto3.DocumentToProtoConverter;
+import com.google.cloud.discotoproto3converter.proto3.Proto3Writer;
+import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+// Inputs shared by the benchmarks. Paths are relative to the repository root (or to the runfiles
+// root when run through Bazel), which can be overridden with the "benchmarks.root" system property.
+final class BenchmarkInputs {
+  static final String COMPUTE_V1_JSON =
+      "src/test/resources/google/cloud/compute/v1/compute.v1.json";
+  static final String COMPUTE_V1_CONFIG =
+      "src/test/resources/google/cloud/compute/v1/compute.v1.config.input.json";
+  static final String COMPUTE_V1SMALL_JSON =
+      "src/test/resources/google/cloud/compute/v1small/compute.v1small.json";
+  static final String COMPUTE_V1SMALL_PROTO =
+      "src/test/resources/google/cloud/compute/v1small/compute.proto.baseline";
+
+  // A fixed time stamp, so that the converted output does not depend on when it was produced.
+  static final String TIME_STAMP = "2026-01-01T00:00:00Z";
+
+  private BenchmarkInputs() {}
+
+  static String read(String relativePath) throws IOException {
+    return new String(Files.readAllBytes(resolve(relativePath)), StandardCharsets.UTF_8);
+  }
+
+  static JsonNode parseJson(String content) throws IOException {
+    return new ObjectMapper().readTree(content);
+  }
+
+  static Document loadDocument(String relativePath) throws IOException {
+    return Document.from(new DiscoveryNode(parseJson(read(relativePath))));
+  }
+
+  static DocumentToProtoConverter convert(Document document, String inputConfig) {
+    return new DocumentToProtoConverter(
+        document,
+        "compute.v1.json",
+        Collections.emptySet(),
+        Collections.emptySet(),
+        "https://cloud.google.com",
+        true,
+        inputConfig,
+        TIME_STAMP);
+  }
+
+  static String render(ProtoFile protoFile) {
+    StringWriter sw = new StringWriter();
+    try (PrintWriter pw = new PrintWriter(sw)) {
+      new Proto3Writer().writeToFile(pw, protoFile, true);
+    }
+    return sw.toString();
+  }
+
+  private static Path resolve(String relativePath) {
+    return Paths.get(System.getProperty("benchmarks.root", "."), relativePath);
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Runs the benchmarks selected on the command line (all of them by default; the arguments are the
+ * standard JMH ones, including "-l" and "-h", and are handled by the JMH {@link Main}). Unless
+ * "--throughput-only" is given as the first argument, the GC profiler is attached, so the
+ * throughput results come with allocation rates ("gc.alloc.rate.norm" is the number of bytes
+ * allocated per operation).
+ */
+public class BenchmarkRunner {
+  public static void main(String[] args) throws RunnerException, IOException {
+    List<String> jmhArgs = new ArrayList<>();
+    if (args.length > 0 && "--throughput-only".equals(args[0])) {
+      args = Arrays.copyOfRange(args, 1, args.length);
+    } else {
+      jmhArgs.add("-prof");
+      jmhArgs.add("gc");
+    }
+    jmhArgs.addAll(Arrays.asList(args));
+    Main.main(jmhArgs.toArray(new String[0]));
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.benchmarks;
+
+import com.google.cloud.discotoproto3converter.disco.Document;
+import com.google.cloud.discotoproto3converter.proto3.DocumentToProtoConverter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// DocumentToProtoConverter construction (all the conversion passes) for compute v1.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConverterBenchmark {
+  private Document document;
+  private String inputConfig;
+
+  @Setup
+  public void setUp() throws IOException {
+    document = BenchmarkInputs.loadDocument(BenchmarkInputs.COMPUTE_V1_JSON);
+    inputConfig = BenchmarkInputs.read(BenchmarkInputs.COMPUTE_V1_CONFIG);
+  }
+
+  @Benchmark
+  public DocumentToProtoConverter convert() {
+    return BenchmarkInputs.convert(document, inputConfig);
+  }
+
+  @Benchmark
+  public String convertWithOutputConfig() {
+    return BenchmarkInputs.convert(document, inputConfig).getOutputConfig();
+  }
+}
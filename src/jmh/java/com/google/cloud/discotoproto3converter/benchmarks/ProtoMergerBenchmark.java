@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.benchmarks;
+
+import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import com.google.cloud.discotoproto3converter.proto3.ProtoMerger;
+import com.google.cloud.discotoproto3converter.proto3.ProtoParser;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Merging of a proto with its previous version. The merge modifies the new proto, so a fresh copy
+// of it is parsed before each invocation.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProtoMergerBenchmark {
+  @Param({"v1small", "v1"})
+  public String input;
+
+  private String content;
+  private ProtoFile previousProtoFile;
+  private ProtoFile newProtoFile;
+
+  @Setup
+  public void setUp() throws IOException {
+    content = ProtoParserBenchmark.readProto(input);
+    previousProtoFile = new ProtoParser(content).getProtoFile();
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    newProtoFile = new ProtoParser(content).getProtoFile();
+  }
+
+  @Benchmark
+  public ProtoFile merge() {
+    new ProtoMerger().merge(newProtoFile, previousProtoFile);
+    return newProtoFile;
+  }
+}
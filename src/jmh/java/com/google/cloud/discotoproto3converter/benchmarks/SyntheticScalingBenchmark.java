@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.benchmarks;
+
+import com.google.cloud.discotoproto3converter.disco.Document;
+import com.google.cloud.discotoproto3converter.disco.SyntheticDocumentGenerator;
+import com.google.cloud.discotoproto3converter.proto3.DocumentToProtoConverter;
+import com.google.cloud.discotoproto3converter.proto3.Proto3Writer;
+import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import com.google.cloud.discotoproto3converter.proto3.ProtoMerger;
+import com.google.cloud.discotoproto3converter.proto3.ProtoParser;
+import com.google.common.io.CharStreams;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Conversion, merging and writing of synthetic documents shaped like compute v1, at several
+// multiples of its size. The average time per operation should grow linearly with the scale.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SyntheticScalingBenchmark {
+  @Param({"0.5", "1", "2", "5", "10"})
+  public double scale;
+
+  private Document document;
+  private ProtoFile protoFile;
+  private String content;
+  private ProtoFile newProtoFile;
+
+  @Setup
+  public void setUp() {
+    document = SyntheticDocumentGenerator.computeLike(scale).generateDocument();
+    protoFile = BenchmarkInputs.convert(document, null).getProtoFile();
+    content = BenchmarkInputs.render(protoFile);
+  }
+
+  // The merge modifies the new proto, so a fresh copy of it is parsed before each invocation.
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    newProtoFile = new ProtoParser(content).getProtoFile();
+  }
+
+  @Benchmark
+  public DocumentToProtoConverter convert() {
+    return BenchmarkInputs.convert(document, null);
+  }
+
+  @Benchmark
+  public ProtoFile merge() {
+    new ProtoMerger().merge(newProtoFile, protoFile);
+    return newProtoFile;
+  }
+
+  @Benchmark
+  public void write() {
+    try (PrintWriter pw = new PrintWriter(CharStreams.nullWriter())) {
+      new Proto3Writer().writeToFile(pw, protoFile, true);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.benchmarks;
+
+import com.google.cloud.discotoproto3converter.gapic.GapicYamlWriter;
+import com.google.cloud.discotoproto3converter.proto3.ConverterWriter;
+import com.google.cloud.discotoproto3converter.proto3.Proto3Writer;
+import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import com.google.cloud.discotoproto3converter.serviceconfig.ServiceConfigWriter;
+import com.google.common.io.CharStreams;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Emission of the converted compute v1 model by each of the writers, to a writer discarding the
+// output.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WriterBenchmark {
+  @Param({"proto3", "serviceConfig", "gapicYaml"})
+  public String writerName;
+
+  private ProtoFile protoFile;
+  private ConverterWriter writer;
+
+  @Setup
+  public void setUp() throws IOException {
+    protoFile =
+        BenchmarkInputs.convert(
+                BenchmarkInputs.loadDocument(BenchmarkInputs.COMPUTE_V1_JSON),
+                BenchmarkInputs.read(BenchmarkInputs.COMPUTE_V1_CONFIG))
+            .getProtoFile();
+    switch (writerName) {
+      case "proto3":
+        writer = new Proto3Writer();
+        break;
+      case "serviceConfig":
+        writer = new ServiceConfigWriter();
+        break;
+      case "gapicYaml":
+        writer = new GapicYamlWriter();
+        break;
+      default:
+        throw new IllegalArgumentException("unknown writer " + writerName);
+    }
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+    try (PrintWriter pw = new PrintWriter(CharStreams.nullWriter())) {
+      writer.writeToFile(pw, protoFile, true);
+    }
+  }
+}
@@ -19,34 +19,52 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.discotoproto3converter.disco.DiscoveryNode;
 import com.google.cloud.discotoproto3converter.disco.Document;
+import com.google.cloud.discotoproto3converter.disco.Name;
+import com.google.cloud.discotoproto3converter.jfr.WriterFlushEvent;
+import com.google.cloud.discotoproto3converter.proto3.ConversionConfiguration;
 import com.google.cloud.discotoproto3converter.proto3.ConverterWriter;
+import com.google.cloud.discotoproto3converter.proto3.DescriptorValidator;
 import com.google.cloud.discotoproto3converter.proto3.DocumentToProtoConverter;
+import com.google.cloud.discotoproto3converter.proto3.PhaseUsage;
 import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import com.google.cloud.discotoproto3converter.proto3.ProtoFileCache;
 import com.google.cloud.discotoproto3converter.proto3.ProtoMerger;
 import com.google.cloud.discotoproto3converter.proto3.ProtoParser;
+import com.google.gson.GsonBuilder;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.Reader;
-import java.io.UnsupportedEncodingException;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public abstract class ConverterApp {
   private final ConverterWriter writer;
+  // The other apps whose output files are written from the model converted by this app, by output
+  // file path.
+  private final Map<String, ConverterApp> additionalOutputs = new LinkedHashMap<>();
+  // The output files of the current conversion.
+  private OutputFiles outputFiles;
 
   static final Set<String> ALLOWED_ARGUMENTS =
       new HashSet<>(
@@ -60,7 +78,19 @@ public abstract class ConverterApp {
               "--message_ignorelist",
               "--relative_link_prefix",
               "--enums_as_strings",
-              "--output_comments"));
+              "--output_comments",
+              "--previous_proto_cache_dir",
+              "--pass_timings",
+              "--profile",
+              "--footprint_report",
+              "--prune_unreachable_messages",
+              "--service_allowlist",
+              "--shard_output",
+              "--output_descriptor_set_path",
+              "--validate_descriptors",
+              "--render_cache_dir",
+              "--hermetic",
+              "--timestamp"));
 
   protected ConverterApp(ConverterWriter writer) {
     this.writer = writer;
@@ -82,15 +112,80 @@ public abstract class ConverterApp {
       String outputComments,
       String timeStamp)
       throws IOException {
+    convert(
+        discoveryDocPath,
+        previousProtoPath,
+        outputFilePath,
+        inputConfigPath,
+        outputConfigPath,
+        serviceIgnorelist,
+        messageIgnorelist,
+        relativeLinkPrefix,
+        enumsAsStrings,
+        outputComments,
+        timeStamp,
+        new HashMap<>());
+  }
+
+  // The options map holds the values of the optional arguments (as returned by parseArgs()) which
+  // do not have a dedicated parameter; absent options take their default values.
+  protected void convert(
+      String discoveryDocPath,
+      String previousProtoPath,
+      String outputFilePath,
+      String inputConfigPath,
+      String outputConfigPath,
+      String serviceIgnorelist,
+      String messageIgnorelist,
+      String relativeLinkPrefix,
+      String enumsAsStrings,
+      String outputComments,
+      String timeStamp,
+      Map<String, String> options)
+      throws IOException {
+    String profilePath = options.getOrDefault("--profile", "");
+    ProfileReport profile = null;
+    if (profilePath.length() > 0) {
+      profile = new ProfileReport();
+      profile.beginRun(writer.getClass().getSimpleName());
+    }
+    outputFiles = new OutputFiles();
+
     String inputConfig = null;
     if (inputConfigPath.length() > 0) {
-      inputConfig = Files.readString(Paths.get(inputConfigPath));
+      inputConfig =
+          measure(profile, "readInputConfig", () -> Files.readString(Paths.get(inputConfigPath)));
+    }
+
+    // The previous proto file is read first, as its messages are kept when pruning.
+    ProtoFile previousProtoFile = null;
+    if (previousProtoPath != null) {
+      String previousProtoCacheDir = options.getOrDefault("--previous_proto_cache_dir", "");
+      previousProtoFile = parsePreviousProto(previousProtoPath, previousProtoCacheDir, profile);
     }
 
     ProtoFile newProtoFile = null;
+    Document document = null;
 
     if (discoveryDocPath != null) {
-      Document document = createDocument(discoveryDocPath);
+      document =
+          createDocument(
+              discoveryDocPath,
+              options.getOrDefault("--service_allowlist", ""),
+              inputConfig,
+              previousProtoFile != null
+                  ? previousProtoFile.getMessages().keySet()
+                  : Collections.emptySet(),
+              profile);
+      // Hermetic conversions depend on nothing but their inputs: their time stamp is given, or
+      // derived from the revision of the document, and they don't record the converter version.
+      boolean hermetic = Boolean.valueOf(options.getOrDefault("--hermetic", "false"));
+      String timeStampOption = options.getOrDefault("--timestamp", "");
+      if (timeStampOption.length() > 0) {
+        timeStamp = parseTimeStamp(timeStampOption);
+      } else if (hermetic) {
+        timeStamp = revisionTimeStamp(document.revision());
+      }
       DocumentToProtoConverter converter =
           new DocumentToProtoConverter(
               document,
@@ -100,33 +195,142 @@ public abstract class ConverterApp {
               relativeLinkPrefix,
               Boolean.valueOf(enumsAsStrings),
               inputConfig,
-              timeStamp);
+              timeStamp,
+              Boolean.valueOf(options.getOrDefault("--prune_unreachable_messages", "false")),
+              previousProtoFile != null
+                  ? previousProtoFile.getMessages().keySet()
+                  : Collections.emptySet(),
+              hermetic ? "" : DocumentToProtoConverter.getConverterVersion());
       newProtoFile = converter.getProtoFile();
 
       if (outputConfigPath.length() > 0) {
         Path outputPath = Paths.get(outputConfigPath);
-        Files.createDirectories(outputPath.getParent());
-        Files.writeString(outputPath, converter.getOutputConfig());
+        String outputConfig = converter.getOutputConfig();
+        measure(
+            profile,
+            "writeOutputConfig",
+            () -> {
+              writeOutputFile(outputPath, outputConfig);
+              return null;
+            });
       }
-    }
 
-    ProtoFile previousProtoFile = null;
-    if (previousProtoPath != null) {
-      previousProtoFile = new ProtoParser(readProtoFile(previousProtoPath)).getProtoFile();
+      String passTimingsPath = options.getOrDefault("--pass_timings", "");
+      if (passTimingsPath.length() > 0) {
+        writePassTimings(Paths.get(passTimingsPath), converter.getPassTimings());
+      }
+
+      if (profile != null) {
+        for (Map.Entry<String, PhaseUsage> entry : converter.getPassUsage().entrySet()) {
+          profile.addPhase("convert." + entry.getKey(), entry.getValue());
+        }
+        profile.recordCardinalities(document, newProtoFile);
+      }
     }
 
+    ProtoFile outputProtoFile = newProtoFile;
     if (newProtoFile != null) {
       if (previousProtoFile != null) {
-        new ProtoMerger().merge(newProtoFile, previousProtoFile);
-      }
-      try (PrintWriter pw = makeDefaultDirsAndWriter(outputFilePath)) {
-        writer.writeToFile(pw, newProtoFile, Boolean.valueOf(outputComments));
+        ProtoFile protoFile = newProtoFile;
+        ProtoFile mergedProtoFile = previousProtoFile;
+        measure(
+            profile,
+            "merge",
+            () -> {
+              new ProtoMerger().merge(protoFile, mergedProtoFile);
+              return null;
+            });
       }
-    } else if (previousProtoFile != null) {
-      try (PrintWriter pw = makeDefaultDirsAndWriter(outputFilePath)) {
-        writer.writeToFile(pw, previousProtoFile, Boolean.valueOf(outputComments));
+    } else {
+      outputProtoFile = previousProtoFile;
+    }
+
+    // Invalid proto files fail the conversion instead of the compilation of its output.
+    if (outputProtoFile != null
+        && Boolean.valueOf(options.getOrDefault("--validate_descriptors", "false"))) {
+      ProtoFile protoFile = outputProtoFile;
+      String fileName = Paths.get(outputFilePath).getFileName().toString();
+      Document validatedDocument = document;
+      measure(
+          profile,
+          "validateDescriptors",
+          () -> {
+            // References to undefined schemas are converted to empty messages, which are valid.
+            if (validatedDocument != null) {
+              checkReferences(validatedDocument);
+            }
+            return DescriptorValidator.validate(protoFile, fileName);
+          });
+    }
+
+    String footprintReportPath = options.getOrDefault("--footprint_report", "");
+    if (outputProtoFile != null && footprintReportPath.length() > 0) {
+      FootprintReport.measure(document, outputProtoFile).write(Paths.get(footprintReportPath));
+    }
+
+    if (outputProtoFile != null) {
+      boolean comments = Boolean.valueOf(outputComments);
+      write(this, outputFilePath, outputProtoFile, comments, options, profile);
+      for (Map.Entry<String, ConverterApp> entry : additionalOutputs.entrySet()) {
+        write(entry.getValue(), entry.getKey(), outputProtoFile, comments, options, profile);
       }
     }
+
+    // Unchanged output files are not written (see OutputFiles).
+    List<Path> changedFiles = outputFiles.getChangedFiles();
+    System.err.printf("\n%d of %d output files changed", changedFiles.size(), outputFiles.size());
+    for (Path changedFile : changedFiles) {
+      System.err.printf("\n  %s", changedFile);
+    }
+
+    if (profile != null) {
+      profile.write(Paths.get(profilePath));
+    }
+  }
+
+  private static void checkReferences(Document document) {
+    Map<String, Set<String>> danglingReferences = document.dependencyGraph().danglingReferences();
+    if (!danglingReferences.isEmpty()) {
+      throw new IllegalStateException(
+          String.format(
+              "references to undefined schemas (by referencing schema or method): %s",
+              danglingReferences));
+    }
+  }
+
+  // Makes the conversions of this app also write the output file of the given app to the given
+  // path, from the same converted model, so that a single conversion produces the outputs of
+  // several apps.
+  void addOutput(String outputFilePath, ConverterApp app) {
+    additionalOutputs.put(outputFilePath, app);
+  }
+
+  // Writes the output of the given app (this one, or one of the additional outputs), recording its
+  // output files along with the ones of this app.
+  private void write(
+      ConverterApp app,
+      String outputFilePath,
+      ProtoFile protoFile,
+      boolean outputComments,
+      Map<String, String> options,
+      ProfileReport profile)
+      throws IOException {
+    String writerName = app.writer.getClass().getSimpleName();
+    app.outputFiles = outputFiles;
+    measure(
+        profile,
+        "write." + writerName,
+        () -> {
+          WriterFlushEvent event = new WriterFlushEvent();
+          event.begin();
+          app.writeOutput(outputFilePath, protoFile, outputComments, options);
+          if (event.shouldCommit()) {
+            event.writer = writerName;
+            event.outputPath = outputFilePath;
+            event.commit();
+          }
+          return null;
+        });
   }
 
   /** Convenience method when we automatically set the time to right now. */
@@ -153,9 +357,7 @@ public abstract class ConverterApp {
         relativeLinkPrefix,
         enumsAsStrings,
         outputComments,
-        OffsetDateTime.now()
-            .truncatedTo(ChronoUnit.SECONDS)
-            .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        currentTimeStamp());
   }
 
   /** Convenience method when we don't deal with input or output configs. */
@@ -199,7 +401,9 @@ public abstract class ConverterApp {
         parsedArgs.get("--message_ignorelist"),
         parsedArgs.get("--relative_link_prefix"),
         parsedArgs.get("--enums_as_strings"),
-        parsedArgs.get("--output_comments"));
+        parsedArgs.get("--output_comments"),
+        currentTimeStamp(),
+        parsedArgs);
   }
 
   public static Map<String, String> parseArgs(String[] args) {
@@ -212,6 +416,18 @@ public abstract class ConverterApp {
     parsedArgs.put("--output_comments", "true");
     parsedArgs.put("--input_config_path", "");
     parsedArgs.put("--output_config_path", "");
+    parsedArgs.put("--previous_proto_cache_dir", "");
+    parsedArgs.put("--pass_timings", "");
+    parsedArgs.put("--profile", "");
+    parsedArgs.put("--footprint_report", "");
+    parsedArgs.put("--prune_unreachable_messages", "false");
+    parsedArgs.put("--service_allowlist", "");
+    parsedArgs.put("--shard_output", "false");
+    parsedArgs.put("--output_descriptor_set_path", "");
+    parsedArgs.put("--validate_descriptors", "false");
+    parsedArgs.put("--render_cache_dir", "");
+    parsedArgs.put("--hermetic", "false");
+    parsedArgs.put("--timestamp", "");
 
     for (String arg : args) {
       String[] argNameVal = arg.split("=");
@@ -225,22 +441,156 @@ public abstract class ConverterApp {
     return parsedArgs;
   }
 
-  private PrintWriter makeDefaultDirsAndWriter(String outputFilePath)
-      throws FileNotFoundException, UnsupportedEncodingException {
-    Path outputPath = Paths.get(outputFilePath);
-    outputPath.getParent().toFile().mkdirs();
-    return new PrintWriter(outputFilePath, "UTF-8");
+  private static String currentTimeStamp() {
+    return OffsetDateTime.now()
+        .truncatedTo(ChronoUnit.SECONDS)
+        .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+  }
+
+  // Parses a time stamp given as an ISO-8601 date (taken as midnight UTC) or date-time with an
+  // offset, and formats it like currentTimeStamp().
+  static String parseTimeStamp(String timeStamp) {
+    OffsetDateTime dateTime;
+    try {
+      dateTime = OffsetDateTime.parse(timeStamp);
+    } catch (DateTimeParseException e) {
+      try {
+        dateTime = LocalDate.parse(timeStamp).atStartOfDay().atOffset(ZoneOffset.UTC);
+      } catch (DateTimeParseException e2) {
+        throw new IllegalArgumentException(
+            String.format(
+                "invalid time stamp \"%s\": expected an ISO-8601 date or date-time", timeStamp));
+      }
+    }
+    return dateTime.truncatedTo(ChronoUnit.SECONDS).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+  }
+
+  // The time stamp of a Discovery document revision, which is the date of the revision
+  // ("yyyyMMdd").
+  static String revisionTimeStamp(String revision) {
+    if (revision != null) {
+      try {
+        return LocalDate.parse(revision, DateTimeFormatter.BASIC_ISO_DATE)
+            .atStartOfDay()
+            .atOffset(ZoneOffset.UTC)
+            .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+      } catch (DateTimeParseException e) {
+        // Reported below.
+      }
+    }
+    throw new IllegalArgumentException(
+        String.format(
+            "the revision \"%s\" of the Discovery document is not a date, pass --timestamp to"
+                + " convert it hermetically",
+            revision));
+  }
+
+  private static <T> T measure(ProfileReport profile, String phase, ProfileReport.Phase<T> action)
+      throws IOException {
+    return profile == null ? action.run() : profile.measure(phase, action);
+  }
+
+  // If a cache directory is given, the parsed model of the previous proto is loaded from (or stored
+  // to) it, keyed by the content of the proto file.
+  private ProtoFile parsePreviousProto(
+      String previousProtoPath, String previousProtoCacheDir, ProfileReport profile)
+      throws IOException {
+    String content = measure(profile, "readPreviousProto", () -> readProtoFile(previousProtoPath));
+    if (previousProtoCacheDir.length() > 0) {
+      return measure(
+          profile,
+          "loadPreviousProto",
+          () -> new ProtoFileCache(Paths.get(previousProtoCacheDir)).getOrParse(content));
+    }
+    return measure(profile, "parsePreviousProto", () -> new ProtoParser(content).getProtoFile());
+  }
+
+  // Writes the time spent in each conversion pass as a JSON object mapping pass names to
+  // milliseconds.
+  private static void writePassTimings(Path path, Map<String, Long> passTimings)
+      throws IOException {
+    Map<String, Double> passMillis = new LinkedHashMap<>();
+    for (Map.Entry<String, Long> entry : passTimings.entrySet()) {
+      passMillis.put(entry.getKey(), entry.getValue() / 1e6);
+    }
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    Files.writeString(path, new GsonBuilder().setPrettyPrinting().create().toJson(passMillis));
+  }
+
+  // Writes the output file. The options map is the one passed to convert(), for the apps which
+  // support other output layouts.
+  protected void writeOutput(
+      String outputFilePath,
+      ProtoFile protoFile,
+      boolean outputComments,
+      Map<String, String> options)
+      throws IOException {
+    writeOutputFile(Paths.get(outputFilePath), render(writer, protoFile, outputComments));
   }
 
-  private Document createDocument(String discoveryDocPath) throws IOException {
+  protected static String render(
+      ConverterWriter writer, ProtoFile protoFile, boolean outputComments) throws IOException {
+    StringWriter sw = new StringWriter();
+    try (PrintWriter pw = new PrintWriter(sw)) {
+      writer.writeToFile(pw, protoFile, outputComments);
+    }
+    return sw.toString();
+  }
+
+  // Writes an output file of the conversion, unless it already has the given content.
+  protected void writeOutputFile(Path path, String content) throws IOException {
+    writeOutputFile(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  protected void writeOutputFile(Path path, byte[] content) throws IOException {
+    outputFiles.write(path, content);
+  }
+
+  // If the service allowlist is not empty, only the resources it names (by their naively derived
+  // service names, like the service ignorelist) and the schemas they, the inline schemas of the
+  // input config or the messages of the previous proto file reach are read from the document. The
+  // latter are needed by the fields of the previous proto file which the merge preserves.
+  private Document createDocument(
+      String discoveryDocPath,
+      String serviceAllowlist,
+      String inputConfig,
+      Set<String> previousMessages,
+      ProfileReport profile)
+      throws IOException {
     if (!new File(discoveryDocPath).exists()) {
       throw new FileNotFoundException("Discovery document filepath not found.");
     }
 
-    Reader reader = new InputStreamReader(new FileInputStream(new File(discoveryDocPath)));
-    ObjectMapper mapper = new ObjectMapper();
-    JsonNode root = mapper.readTree(reader);
-    return Document.from(new DiscoveryNode(root));
+    byte[] content =
+        measure(profile, "readDiscoveryDoc", () -> Files.readAllBytes(Paths.get(discoveryDocPath)));
+    JsonNode root =
+        measure(
+            profile,
+            "parseJson",
+            () -> {
+              Reader reader = new InputStreamReader(new ByteArrayInputStream(content));
+              ObjectMapper mapper = new ObjectMapper();
+              return mapper.readTree(reader);
+            });
+    if (serviceAllowlist.isEmpty()) {
+      return measure(profile, "documentFrom", () -> Document.from(new DiscoveryNode(root)));
+    }
+    Set<String> allowedServices = new HashSet<>(Arrays.asList(serviceAllowlist.split(",")));
+    Set<String> requiredSchemas = new HashSet<>(previousMessages);
+    if (inputConfig != null) {
+      requiredSchemas.addAll(
+          ConversionConfiguration.fromJSON(inputConfig).getInlineFieldSchemaNames());
+    }
+    return measure(
+        profile,
+        "documentFrom",
+        () ->
+            Document.from(
+                new DiscoveryNode(root),
+                resource -> allowedServices.contains(Name.anyCamel(resource).toUpperCamel()),
+                requiredSchemas));
   }
 
   protected static String readProtoFile(String protoFilePath) throws IOException {
@@ -16,14 +16,74 @@
 
 package com.google.cloud.discotoproto3converter;
 
+import com.google.cloud.discotoproto3converter.proto3.DescriptorSetWriter;
+import com.google.cloud.discotoproto3converter.proto3.MessageRenderCache;
 import com.google.cloud.discotoproto3converter.proto3.Proto3Writer;
+import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import com.google.cloud.discotoproto3converter.proto3.ShardedProto3Writer;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
 
 public class DiscoToProto3ConverterApp extends ConverterApp {
   public DiscoToProto3ConverterApp() {
     super(new Proto3Writer());
   }
 
+  // With --shard_output=true, writes the shared messages and each service to separate files (see
+  // ShardedProto3Writer) next to the output file path, instead of writing a single file. With
+  // --output_descriptor_set_path, also writes the FileDescriptorSet of the single proto file. With
+  // --render_cache_dir, reuses the text of the messages rendered by previous runs (see
+  // MessageRenderCache).
+  @Override
+  protected void writeOutput(
+      String outputFilePath,
+      ProtoFile protoFile,
+      boolean outputComments,
+      Map<String, String> options)
+      throws IOException {
+    String renderCacheDir = options.getOrDefault("--render_cache_dir", "");
+    MessageRenderCache renderCache =
+        renderCacheDir.length() > 0
+            ? MessageRenderCache.load(
+                Paths.get(renderCacheDir), MessageRenderCache.DEFAULT_MAX_BYTES)
+            : null;
+    Proto3Writer writer = new Proto3Writer(renderCache);
+    if (Boolean.valueOf(options.getOrDefault("--shard_output", "false"))) {
+      writeShards(outputFilePath, protoFile, outputComments, writer);
+    } else {
+      writeOutputFile(Paths.get(outputFilePath), render(writer, protoFile, outputComments));
+    }
+    if (renderCache != null) {
+      renderCache.save();
+    }
+
+    String descriptorSetPath = options.getOrDefault("--output_descriptor_set_path", "");
+    if (descriptorSetPath.length() > 0) {
+      String fileName = Paths.get(outputFilePath).getFileName().toString();
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      new DescriptorSetWriter().writeTo(os, protoFile, fileName);
+      writeOutputFile(Paths.get(descriptorSetPath), os.toByteArray());
+    }
+  }
+
+  private void writeShards(
+      String outputFilePath, ProtoFile protoFile, boolean outputComments, Proto3Writer writer)
+      throws IOException {
+    Path outputPath = Paths.get(outputFilePath);
+    String fileStem = outputPath.getFileName().toString();
+    if (fileStem.endsWith(".proto")) {
+      fileStem = fileStem.substring(0, fileStem.length() - ".proto".length());
+    }
+    Map<String, String> shards =
+        new ShardedProto3Writer(writer).writeShards(protoFile, fileStem, outputComments);
+    for (Map.Entry<String, String> shard : shards.entrySet()) {
+      writeOutputFile(outputPath.resolveSibling(shard.getKey()), shard.getValue());
+    }
+  }
+
   public static void main(String[] args) throws IOException {
     DiscoToProto3ConverterApp converterApp = new DiscoToProto3ConverterApp();
     converterApp.convert(args);
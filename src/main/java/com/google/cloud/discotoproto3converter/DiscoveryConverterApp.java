@@ -26,20 +26,16 @@ public class DiscoveryConverterApp {
     String outputFilePathArgument = "--output_file_path";
     String outputFileStem = parsedArgs.get(outputFilePathArgument);
 
-    System.err.print("Generating protocol buffer file...");
+    // The Discovery document is converted once, and all the files are written from the converted
+    // model by the writers of the respective apps.
+    System.err.print(
+        "Generating protocol buffer file, grpc service config and gapic yaml config...");
     parsedArgs.put(outputFilePathArgument, outputFileStem.concat(".proto"));
-    DiscoToProto3ConverterApp protoConverterApp = new DiscoToProto3ConverterApp();
-    protoConverterApp.convert(parsedArgs);
-
-    System.err.print("\nGenerating grpc service config...");
-    parsedArgs.put(outputFilePathArgument, outputFileStem.concat("_grpc_service_config.json"));
-    ServiceConfigGeneratorApp serviceConfigConverterApp = new ServiceConfigGeneratorApp();
-    serviceConfigConverterApp.convert(parsedArgs);
-
-    System.err.print("\nGenerating gapic yaml config...");
-    parsedArgs.put(outputFilePathArgument, outputFileStem.concat("_gapic.yaml"));
-    GapicYamlGeneratorApp gapicYamlGeneratorApp = new GapicYamlGeneratorApp();
-    gapicYamlGeneratorApp.convert(parsedArgs);
+    DiscoToProto3ConverterApp converterApp = new DiscoToProto3ConverterApp();
+    converterApp.addOutput(
+        outputFileStem.concat("_grpc_service_config.json"), new ServiceConfigGeneratorApp());
+    converterApp.addOutput(outputFileStem.concat("_gapic.yaml"), new GapicYamlGeneratorApp());
+    converterApp.convert(parsedArgs);
 
     System.err.print("\nDone.\n");
   }
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.cloud.discotoproto3converter.disco.DiscoveryNode;
+import com.google.cloud.discotoproto3converter.disco.Document;
+import com.google.cloud.discotoproto3converter.disco.Method;
+import com.google.cloud.discotoproto3converter.disco.Schema;
+import com.google.cloud.discotoproto3converter.proto3.Field;
+import com.google.cloud.discotoproto3converter.proto3.GrpcMethod;
+import com.google.cloud.discotoproto3converter.proto3.GrpcService;
+import com.google.cloud.discotoproto3converter.proto3.Message;
+import com.google.cloud.discotoproto3converter.proto3.Option;
+import com.google.cloud.discotoproto3converter.proto3.ProtoElement;
+import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An estimate of the heap footprint of a converted proto model and of the Discovery document it was
+ * converted from, written as JSON by the {@code --footprint_report} argument.
+ *
+ * <p>The object graph reachable from the two models is walked once and every object is attributed
+ * to exactly one category. The model objects of each category (e.g. {@link Message} instances) are
+ * the category's own objects, whose sizes add up to its shallow size; every other object (a
+ * collection, a name string, etc.) is attributed to the category of the first model object found to
+ * reference it, and adds up to that category's retained size. Categories are walked in a fixed
+ * order, so an object shared between categories is attributed to the earlier one.
+ *
+ * <p>Sizes assume a 64-bit JVM with compressed references and compact strings. JDK classes cannot
+ * be inspected reflectively, so the internals of the common collections and of strings are
+ * estimated from their sizes; the result is an estimate suitable for sizing, not an exact count.
+ */
+class FootprintReport {
+  static final int TOP_MESSAGES = 20;
+
+  private static final int OBJECT_HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+
+  /** The categories the footprint is broken down into, in the order they are attributed. */
+  enum Category {
+    ROOTS("roots"),
+    DESCRIPTIONS("descriptions"),
+    MESSAGES("messages"),
+    FIELDS("fields"),
+    OPTIONS("options"),
+    OPTION_PROPERTIES("optionProperties"),
+    SERVICES("services"),
+    SCHEMAS("schemas"),
+    METHODS("methods"),
+    DISCOVERY_NODES("discoveryNodes");
+
+    private final String jsonName;
+
+    Category(String jsonName) {
+      this.jsonName = jsonName;
+    }
+  }
+
+  private static final Map<Class<?>, Long> FIELDS_SIZE_CACHE = new HashMap<>();
+  private static final Map<Class<?>, List<java.lang.reflect.Field>> REFERENCES_CACHE =
+      new HashMap<>();
+
+  private final Map<Object, Category> ownObjects = new IdentityHashMap<>();
+  private final Map<Category, List<Object>> pending = new EnumMap<>(Category.class);
+  private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+  // The retained size of each own object, i.e. including the objects attributed to it.
+  private final Map<Object, Long> retainedSizes = new IdentityHashMap<>();
+  private final Map<Category, long[]> totals = new EnumMap<>(Category.class);
+  private final ProtoFile protoFile;
+
+  private FootprintReport(Document document, ProtoFile protoFile) {
+    this.protoFile = protoFile;
+    for (Category category : Category.values()) {
+      pending.put(category, new ArrayList<>());
+      // Own object count, shallow size and retained size.
+      totals.put(category, new long[3]);
+    }
+    own(protoFile, Category.ROOTS);
+    if (document != null) {
+      own(document, Category.ROOTS);
+    }
+  }
+
+  /** Estimates the footprint of the given models; the document is optional. */
+  static FootprintReport measure(Document document, ProtoFile protoFile) {
+    FootprintReport report = new FootprintReport(document, protoFile);
+    report.walk();
+    return report;
+  }
+
+  long getShallowBytes(Category category) {
+    return totals.get(category)[1];
+  }
+
+  long getRetainedBytes(Category category) {
+    return totals.get(category)[2];
+  }
+
+  long getCount(Category category) {
+    return totals.get(category)[0];
+  }
+
+  private void walk() {
+    // Attributing the objects of a category may find own objects of any other category (e.g. the
+    // fields of a message), so the categories are attributed in order until none is left.
+    boolean found = true;
+    while (found) {
+      found = false;
+      for (Category category : Category.values()) {
+        List<Object> roots = pending.get(category);
+        while (!roots.isEmpty()) {
+          found = true;
+          List<Object> batch = new ArrayList<>(roots);
+          roots.clear();
+          for (Object root : batch) {
+            attribute(root, category);
+          }
+        }
+      }
+    }
+  }
+
+  private void own(Object object, Category category) {
+    if (object != null && !ownObjects.containsKey(object)) {
+      ownObjects.put(object, category);
+      pending.get(category).add(object);
+    }
+  }
+
+  // Registers the own objects of other categories directly referenced by the given own object,
+  // which cannot be recognized by their class alone.
+  private void ownReferencedObjects(Object object) {
+    if (object instanceof ProtoElement) {
+      own(((ProtoElement<?>) object).getDescription(), Category.DESCRIPTIONS);
+    }
+    if (object instanceof Option) {
+      own(((Option) object).getProperties(), Category.OPTION_PROPERTIES);
+    } else if (object instanceof Schema) {
+      own(((Schema) object).description(), Category.DESCRIPTIONS);
+    } else if (object instanceof Method) {
+      own(((Method) object).description(), Category.DESCRIPTIONS);
+    } else if (object instanceof Document) {
+      own(((Document) object).description(), Category.DESCRIPTIONS);
+    }
+  }
+
+  private static Category categoryOf(Object object) {
+    if (object instanceof Message) {
+      return Category.MESSAGES;
+    } else if (object instanceof Field) {
+      return Category.FIELDS;
+    } else if (object instanceof Option) {
+      return Category.OPTIONS;
+    } else if (object instanceof GrpcService || object instanceof GrpcMethod) {
+      return Category.SERVICES;
+    } else if (object instanceof Schema) {
+      return Category.SCHEMAS;
+    } else if (object instanceof Method) {
+      return Category.METHODS;
+    } else if (object instanceof DiscoveryNode || object instanceof JsonNode) {
+      return Category.DISCOVERY_NODES;
+    }
+    return null;
+  }
+
+  // Walks the objects reachable from the given own object up to (excluding) other own objects,
+  // attributing the ones not attributed yet to it.
+  private void attribute(Object root, Category category) {
+    if (!visited.add(root)) {
+      return;
+    }
+    ownReferencedObjects(root);
+    long shallow = shallowSize(root);
+    long retained = shallow + hiddenSize(root);
+
+    Deque<Object> stack = new ArrayDeque<>();
+    pushReferences(root, stack);
+    while (!stack.isEmpty()) {
+      Object object = stack.pop();
+      if (visited.contains(object)) {
+        continue;
+      }
+      Category ownCategory = ownObjects.get(object);
+      if (ownCategory == null) {
+        ownCategory = categoryOf(object);
+      }
+      if (ownCategory != null) {
+        own(object, ownCategory);
+        continue;
+      }
+      visited.add(object);
+      retained += shallowSize(object) + hiddenSize(object);
+      pushReferences(object, stack);
+    }
+
+    retainedSizes.put(root, retained);
+    long[] categoryTotals = totals.get(category);
+    categoryTotals[0]++;
+    categoryTotals[1] += shallow;
+    categoryTotals[2] += retained;
+  }
+
+  private static boolean isOpaque(Class<?> clazz) {
+    String name = clazz.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.");
+  }
+
+  private static void pushReferences(Object object, Deque<Object> stack) {
+    Class<?> clazz = object.getClass();
+    if (clazz.isArray()) {
+      if (!clazz.getComponentType().isPrimitive()) {
+        for (Object element : (Object[]) object) {
+          pushIfTracked(element, stack);
+        }
+      }
+    } else if (object instanceof Map && isOpaque(clazz)) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+        pushIfTracked(entry.getKey(), stack);
+        pushIfTracked(entry.getValue(), stack);
+      }
+    } else if (object instanceof Collection && isOpaque(clazz)) {
+      for (Object element : (Collection<?>) object) {
+        pushIfTracked(element, stack);
+      }
+    } else if (!isOpaque(clazz)) {
+      for (java.lang.reflect.Field field : references(clazz)) {
+        try {
+          pushIfTracked(field.get(object), stack);
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+  }
+
+  // Enum constants and classes are shared by all the models, so they are not attributed to any.
+  private static void pushIfTracked(Object object, Deque<Object> stack) {
+    if (object != null && !(object instanceof Enum) && !(object instanceof Class)) {
+      stack.push(object);
+    }
+  }
+
+  private static synchronized List<java.lang.reflect.Field> references(Class<?> clazz) {
+    List<java.lang.reflect.Field> references = REFERENCES_CACHE.get(clazz);
+    if (references == null) {
+      references = new ArrayList<>();
+      for (Class<?> c = clazz; c != null && !isOpaque(c); c = c.getSuperclass()) {
+        for (java.lang.reflect.Field field : c.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+            field.setAccessible(true);
+            references.add(field);
+          }
+        }
+      }
+      REFERENCES_CACHE.put(clazz, references);
+    }
+    return references;
+  }
+
+  static long shallowSize(Object object) {
+    Class<?> clazz = object.getClass();
+    if (clazz.isArray()) {
+      int length = Array.getLength(object);
+      Class<?> componentType = clazz.getComponentType();
+      return arraySize(
+          length, componentType.isPrimitive() ? primitiveSize(componentType) : REFERENCE);
+    }
+    return align(OBJECT_HEADER + fieldsSize(clazz));
+  }
+
+  private static synchronized long fieldsSize(Class<?> clazz) {
+    Long size = FIELDS_SIZE_CACHE.get(clazz);
+    if (size == null) {
+      size = 0L;
+      for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+        for (java.lang.reflect.Field field : c.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers())) {
+            Class<?> type = field.getType();
+            size += type.isPrimitive() ? primitiveSize(type) : REFERENCE;
+          }
+        }
+      }
+      FIELDS_SIZE_CACHE.put(clazz, size);
+    }
+    return size;
+  }
+
+  // The size of the internal objects of the JDK classes commonly used by the models, which cannot
+  // be reached reflectively.
+  static long hiddenSize(Object object) {
+    if (object instanceof String) {
+      String string = (String) object;
+      boolean latin1 = string.chars().allMatch(c -> c <= 0xFF);
+      return arraySize(latin1 ? string.length() : 2 * string.length(), 1);
+    } else if (object instanceof TreeMap) {
+      return 40L * ((Map<?, ?>) object).size();
+    } else if (object instanceof TreeSet) {
+      return 48 + 40L * ((Set<?>) object).size();
+    } else if (object instanceof LinkedHashMap) {
+      return hashTableSize(((Map<?, ?>) object).size(), 40);
+    } else if (object instanceof HashMap) {
+      return hashTableSize(((Map<?, ?>) object).size(), 32);
+    } else if (object instanceof LinkedHashSet) {
+      return 56 + hashTableSize(((Set<?>) object).size(), 40);
+    } else if (object instanceof HashSet) {
+      return 48 + hashTableSize(((Set<?>) object).size(), 32);
+    } else if (object instanceof ArrayList) {
+      return arraySize(((List<?>) object).size(), REFERENCE);
+    }
+    return 0;
+  }
+
+  private static long hashTableSize(int size, int nodeSize) {
+    if (size == 0) {
+      return 0;
+    }
+    int capacity = Integer.highestOneBit(Math.max(1, (int) (size / 0.75f)) - 1) << 1;
+    return arraySize(Math.max(16, capacity), REFERENCE) + (long) nodeSize * size;
+  }
+
+  private static long arraySize(int length, int elementSize) {
+    return align(ARRAY_HEADER + (long) length * elementSize);
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  // The size of a message including everything only it refers to: its fields (and their options),
+  // its nested enums, and all of their descriptions.
+  private long messageSize(Message message) {
+    long size = retainedSize(message) + retainedSize(message.getDescription());
+    for (Field field : message.getFields()) {
+      size += retainedSize(field) + retainedSize(field.getDescription());
+      for (Option option : field.getOptions()) {
+        size += retainedSize(option) + retainedSize(option.getProperties());
+      }
+    }
+    for (Message nestedEnum : message.getEnums()) {
+      size += messageSize(nestedEnum);
+    }
+    return size;
+  }
+
+  private long retainedSize(Object object) {
+    return object == null ? 0 : retainedSizes.getOrDefault(object, 0L);
+  }
+
+  /** Returns the names of the heaviest messages along with their sizes, heaviest first. */
+  List<Map<String, Object>> getTopMessages(int count) {
+    List<Map<String, Object>> messages = new ArrayList<>();
+    for (Message message : protoFile.getMessages().values()) {
+      Map<String, Object> entry = new LinkedHashMap<>();
+      entry.put("name", message.getName());
+      entry.put("fields", message.getFields().size());
+      entry.put("retainedBytes", messageSize(message));
+      messages.add(entry);
+    }
+    messages.sort(
+        (a, b) -> Long.compare((Long) b.get("retainedBytes"), (Long) a.get("retainedBytes")));
+    return messages.subList(0, Math.min(count, messages.size()));
+  }
+
+  void write(Path path) throws IOException {
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    long shallowBytes = 0;
+    long retainedBytes = 0;
+    Map<String, Object> categories = new LinkedHashMap<>();
+    for (Category category : Category.values()) {
+      Map<String, Object> entry = new LinkedHashMap<>();
+      entry.put("count", getCount(category));
+      entry.put("shallowBytes", getShallowBytes(category));
+      entry.put("retainedBytes", getRetainedBytes(category));
+      categories.put(category.jsonName, entry);
+      shallowBytes += getShallowBytes(category);
+      retainedBytes += getRetainedBytes(category);
+    }
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("totalShallowBytes", shallowBytes);
+    report.put("totalRetainedBytes", retainedBytes);
+    report.put("categories", categories);
+    report.put("topMessages", getTopMessages(TOP_MESSAGES));
+    Files.writeString(path, new GsonBuilder().setPrettyPrinting().create().toJson(report));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The output files written by a conversion.
+ *
+ * <p>An output file is only written if its content changed: the new content is rendered in memory
+ * and compared by hash with the existing file, which is left untouched (keeping its modification
+ * time, so that make- or watcher-based pipelines do not rebuild what depends on it) if it is the
+ * same. A changed file is written to a temporary file in the same directory first, then atomically
+ * moved over the existing one, so that readers never observe a partially written file.
+ */
+class OutputFiles {
+  private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+
+  // Whether each output file written so far changed, in the order they were written.
+  private final Map<Path, Boolean> changed = new LinkedHashMap<>();
+
+  /** Writes the given content to the file at path if it differs from the current content. */
+  void write(Path path, byte[] content) throws IOException {
+    changed.put(path, writeIfChanged(path, content));
+  }
+
+  /** The output files written so far which changed. */
+  List<Path> getChangedFiles() {
+    List<Path> changedFiles = new ArrayList<>();
+    for (Map.Entry<Path, Boolean> entry : changed.entrySet()) {
+      if (entry.getValue()) {
+        changedFiles.add(entry.getKey());
+      }
+    }
+    return Collections.unmodifiableList(changedFiles);
+  }
+
+  /** The number of output files written so far. */
+  int size() {
+    return changed.size();
+  }
+
+  /**
+   * Writes the given content to the file at path (creating its parent directories if needed) unless
+   * the file already has that content. Returns whether the file was written.
+   */
+  static boolean writeIfChanged(Path path, byte[] content) throws IOException {
+    if (Files.isRegularFile(path)
+        && Files.size(path) == content.length
+        && hash(path).equals(HASH_FUNCTION.hashBytes(content))) {
+      return false;
+    }
+
+    Files.createDirectories(path.toAbsolutePath().getParent());
+    // Unlike Files.createTempFile(), this creates the file with the default permissions.
+    Path tmpPath = path.resolveSibling("." + path.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    try {
+      Files.write(tmpPath, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      try {
+        Files.move(
+            tmpPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmpPath);
+    }
+    return true;
+  }
+
+  private static HashCode hash(Path path) throws IOException {
+    try (HashingInputStream is =
+        new HashingInputStream(HASH_FUNCTION, Files.newInputStream(path))) {
+      ByteStreams.exhaust(is);
+      return is.hash();
+    }
+  }
+}
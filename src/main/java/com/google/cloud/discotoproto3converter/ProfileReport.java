@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter;
+
+import com.google.cloud.discotoproto3converter.disco.Document;
+import com.google.cloud.discotoproto3converter.proto3.Field;
+import com.google.cloud.discotoproto3converter.proto3.GrpcMethod;
+import com.google.cloud.discotoproto3converter.proto3.GrpcService;
+import com.google.cloud.discotoproto3converter.proto3.Message;
+import com.google.cloud.discotoproto3converter.proto3.PhaseUsage;
+import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A report of the resources (wall time, CPU time and allocated bytes) used by each phase of one or
+ * more conversion runs, along with the cardinalities of the converted models, written as JSON by
+ * the {@code --profile} argument.
+ */
+class ProfileReport {
+  /** A phase of a conversion run. */
+  interface Phase<T> {
+    T run() throws IOException;
+  }
+
+  private final List<Map<String, Object>> runs = new ArrayList<>();
+  private List<Map<String, Object>> currentPhases;
+  private Map<String, Long> currentCardinalities;
+
+  /** Starts a new run; the subsequent phases and cardinalities are attributed to it. */
+  void beginRun(String name) {
+    Map<String, Object> run = new LinkedHashMap<>();
+    currentPhases = new ArrayList<>();
+    currentCardinalities = new LinkedHashMap<>();
+    run.put("name", name);
+    run.put("phases", currentPhases);
+    run.put("cardinalities", currentCardinalities);
+    runs.add(run);
+  }
+
+  /** Runs the given phase on the current thread, recording the resources it used. */
+  <T> T measure(String name, Phase<T> phase) throws IOException {
+    PhaseUsage start = PhaseUsage.begin();
+    T result = phase.run();
+    addPhase(name, start.end());
+    return result;
+  }
+
+  void addPhase(String name, PhaseUsage usage) {
+    Map<String, Object> phase = new LinkedHashMap<>();
+    phase.put("name", name);
+    phase.put("wallMillis", usage.getWallNanos() / 1e6);
+    phase.put("cpuMillis", usage.getCpuNanos() < 0 ? -1 : usage.getCpuNanos() / 1e6);
+    phase.put("allocatedBytes", usage.getAllocatedBytes());
+    currentPhases.add(phase);
+  }
+
+  /** Records the sizes of the Discovery document and of the proto model converted from it. */
+  void recordCardinalities(Document document, ProtoFile protoFile) {
+    long fields = 0;
+    long enums = 0;
+    long enumValues = 0;
+    long options = 0;
+    for (Message message : protoFile.getMessages().values()) {
+      fields += message.getFields().size();
+      for (Field field : message.getFields()) {
+        options += field.getOptions().size();
+      }
+      enums += message.getEnums().size();
+      for (Message nestedEnum : message.getEnums()) {
+        enumValues += nestedEnum.getFields().size();
+      }
+    }
+    long methods = 0;
+    for (GrpcService service : protoFile.getServices().values()) {
+      options += service.getOptions().size();
+      methods += service.getMethods().size();
+      for (GrpcMethod method : service.getMethods()) {
+        options += method.getOptions().size();
+      }
+    }
+
+    currentCardinalities.put("schemas", (long) document.schemas().size());
+    currentCardinalities.put("messages", (long) protoFile.getMessages().size());
+    currentCardinalities.put("fields", fields);
+    currentCardinalities.put("enums", enums);
+    currentCardinalities.put("enumValues", enumValues);
+    currentCardinalities.put("options", options);
+    currentCardinalities.put("services", (long) protoFile.getServices().size());
+    currentCardinalities.put("methods", methods);
+  }
+
+  void write(Path path) throws IOException {
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("runs", runs);
+    Files.writeString(path, new GsonBuilder().setPrettyPrinting().create().toJson(report));
+  }
+}
@@ -149,6 +149,23 @@ public class DiscoveryNode {
     return jsonNode.get(fieldName).asText();
   }
 
+  /**
+   * Returns the string values of the fields named fieldName in this node and all its descendants,
+   * without parsing them into other objects.
+   *
+   * @param fieldName key of the descendant nodes.
+   * @return a list of strings, in document order.
+   */
+  public List<String> findStrings(String fieldName) {
+    List<String> strings = new ArrayList<>();
+    for (JsonNode value : jsonNode.findValues(fieldName)) {
+      if (value.isTextual()) {
+        strings.add(value.asText());
+      }
+    }
+    return strings;
+  }
+
   /**
    * Returns true if this node is an object node and if it has the key getFieldName.
    *
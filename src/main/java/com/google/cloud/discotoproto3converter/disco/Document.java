@@ -18,15 +18,23 @@ package com.google.cloud.discotoproto3converter.disco;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.gson.internal.LinkedTreeMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
 
 /**
@@ -40,8 +48,6 @@ import javax.annotation.Nullable;
 @AutoValue
 public abstract class Document implements Node {
 
-  // TODO(saicheems): Assert that all references link to a valid schema?
-
   private static final String CLOUD_PLATFORM_SCOPE =
       "https://www.googleapis.com/auth/cloud-platform";
 
@@ -52,6 +58,27 @@ public abstract class Document implements Node {
    * @return a document.
    */
   public static Document from(DiscoveryNode root) {
+    return from(root, null, Collections.emptySet());
+  }
+
+  /**
+   * Returns a document constructed from root, keeping only the resources accepted by the given
+   * filter and their methods. Only the schemas the methods of these resources or the given schemas
+   * reference, directly or through other schemas, are parsed; the other schemas are left out of the
+   * document.
+   *
+   * @param root the root node to parse.
+   * @param resourceFilter accepts the names of the (top-level) resources to keep, as they appear in
+   *     the Discovery document; null to keep all the resources, the methods outside them and all
+   *     the schemas.
+   * @param requiredSchemas the names of schemas to keep (along with the schemas they reference)
+   *     even if the kept resources do not reference them; unknown names are ignored.
+   * @return a document.
+   */
+  public static Document from(
+      DiscoveryNode root,
+      @Nullable Predicate<String> resourceFilter,
+      Collection<String> requiredSchemas) {
     AuthType authType;
     DiscoveryNode scopesNode = root.getObject("auth").getObject("oauth2").getObject("scopes");
 
@@ -69,15 +96,34 @@ public abstract class Document implements Node {
     String canonicalName = root.getString("canonicalName");
     String description = root.getString("description");
     String id = root.getString("id");
-    Map<String, Schema> schemas = parseSchemas(root);
-    List<Method> methods = parseMethods(root);
+    Map<String, Schema> schemas;
+    List<Method> methods;
+    if (resourceFilter == null) {
+      schemas = parseSchemas(root, null);
+      methods = parseMethods(root);
+    } else {
+      DiscoveryNode resourcesNode = root.getObject("resources");
+      List<DiscoveryNode> resourceNodes = new ArrayList<>();
+      for (String name : resourcesNode.getFieldNames()) {
+        if (resourceFilter.test(name)) {
+          resourceNodes.add(resourcesNode.getObject(name));
+        }
+      }
+      schemas =
+          parseSchemas(
+              root, referencedSchemas(root.getObject("schemas"), resourceNodes, requiredSchemas));
+      methods = new ArrayList<>();
+      for (DiscoveryNode resourceNode : resourceNodes) {
+        methods.addAll(parseMethods(resourceNode));
+      }
+    }
     Collections.sort(methods); // Ensure methods are ordered alphabetically by their ID.
     String ownerDomain = root.getString("ownerDomain");
     String name = root.getString("name");
     if (canonicalName.isEmpty()) {
       canonicalName = name;
     }
-    Map<String, List<Method>> resources = parseResources(root);
+    Map<String, List<Method>> resources = parseResources(root, resourceFilter);
     String revision = root.getString("revision");
     String rootUrl = root.getString("rootUrl");
     String servicePath = root.getString("servicePath");
@@ -129,7 +175,8 @@ public abstract class Document implements Node {
 
   // TODO: Combine with parseMethods(). See
   //       https://github.com/googleapis/disco-to-proto3-converter/issues/123
-  private static Map<String, List<Method>> parseResources(DiscoveryNode root) {
+  private static Map<String, List<Method>> parseResources(
+      DiscoveryNode root, @Nullable Predicate<String> resourceFilter) {
     List<Method> methods = new ArrayList<>();
     DiscoveryNode methodsNode = root.getObject("methods");
     List<String> resourceNames = methodsNode.getFieldNames();
@@ -140,7 +187,9 @@ public abstract class Document implements Node {
     DiscoveryNode resourcesNode = root.getObject("resources");
     resourceNames = resourcesNode.getFieldNames();
     for (String name : resourceNames) {
-      resources.put(name, parseMethods(resourcesNode.getObject(name)));
+      if (resourceFilter == null || resourceFilter.test(name)) {
+        resources.put(name, parseMethods(resourcesNode.getObject(name)));
+      }
     }
     return resources;
   }
@@ -162,15 +211,53 @@ public abstract class Document implements Node {
     return methods;
   }
 
-  private static Map<String, Schema> parseSchemas(DiscoveryNode root) {
+  // Parses the schemas with the given names (all of them if null), in the order they are defined.
+  private static Map<String, Schema> parseSchemas(
+      DiscoveryNode root, @Nullable Set<String> schemaNames) {
     Map<String, Schema> schemas = new LinkedHashMap<>();
     DiscoveryNode schemasNode = root.getObject("schemas");
     for (String name : schemasNode.getFieldNames()) {
-      schemas.put(name, Schema.from(schemasNode.getObject(name), name, null));
+      if (schemaNames == null || schemaNames.contains(name)) {
+        schemas.put(name, Schema.from(schemasNode.getObject(name), name, null));
+      }
     }
     return schemas;
   }
 
+  // Returns the names of the given schemas and of the schemas referenced from them or from the
+  // given resources, directly or through other schemas, found by following the references in the
+  // unparsed schemas. References to undefined schemas are ignored here; they are reported when
+  // validating the output of the conversion.
+  private static Set<String> referencedSchemas(
+      DiscoveryNode schemasNode,
+      List<DiscoveryNode> resourceNodes,
+      Collection<String> requiredSchemas) {
+    // References are usually by schema name, which is also the ID of the schema.
+    Map<String, String> namesByReference = new HashMap<>();
+    for (String name : schemasNode.getFieldNames()) {
+      namesByReference.put(name, name);
+    }
+    for (String name : schemasNode.getFieldNames()) {
+      DiscoveryNode schemaNode = schemasNode.getObject(name);
+      if (schemaNode.has("id")) {
+        namesByReference.putIfAbsent(schemaNode.getString("id"), name);
+      }
+    }
+
+    Deque<String> references = new ArrayDeque<>(requiredSchemas);
+    for (DiscoveryNode resourceNode : resourceNodes) {
+      references.addAll(resourceNode.findStrings("$ref"));
+    }
+    Set<String> schemaNames = new HashSet<>();
+    while (!references.isEmpty()) {
+      String name = namesByReference.get(references.pop());
+      if (name != null && schemaNames.add(name)) {
+        references.addAll(schemasNode.getObject(name).findStrings("$ref"));
+      }
+    }
+    return schemaNames;
+  }
+
   /** @return the parent Node that contains this node. */
   @JsonIgnore @Nullable private Node parent;
 
@@ -260,6 +347,15 @@ public abstract class Document implements Node {
   @JsonProperty("versionModule")
   public abstract boolean versionModule();
 
+  /**
+   * @return the dependency graph of the schemas, built on first use and shared by all its users.
+   */
+  @Memoized
+  @JsonIgnore
+  public SchemaDependencyGraph dependencyGraph() {
+    return SchemaDependencyGraph.of(this);
+  }
+
   /** The set of supported authentication formats. */
   public enum AuthType {
     /** No auth. */
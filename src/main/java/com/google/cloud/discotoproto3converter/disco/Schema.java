@@ -337,7 +337,8 @@ public abstract class Schema implements Node {
         additionalProperties() == null ? null : additionalProperties().getIdentifier(),
         defaultValue(),
         // we explicitly exclude description()
-        format(),
+        // The enums contribute their names, as their hash codes differ between JVM runs.
+        format() == null ? null : format().name(),
         id(),
         isEnum(),
         items() == null ? null : items().getIdentifier(),
@@ -348,7 +349,7 @@ public abstract class Schema implements Node {
         reference(),
         repeated(),
         required(),
-        type());
+        type() == null ? null : type().name());
   }
 
   @Override
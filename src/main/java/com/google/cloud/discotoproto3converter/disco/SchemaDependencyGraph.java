@@ -0,0 +1,383 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.disco;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The dependencies between the top-level schemas of a Discovery document.
+ *
+ * <p>A schema depends on every schema referenced ({@code $ref}) anywhere in it, including in its
+ * inline (nested) schemas, array items and map values. The schemas referenced by the requests,
+ * responses and parameters of the methods are the roots of the graph. The graph is built once per
+ * document (see {@link Document#dependencyGraph()}), walking every schema exactly once without
+ * recursion. Its strongly connected components (the groups of mutually recursive schemas) are
+ * computed on first use, as most conversions never need them, with an iterative version of Tarjan's
+ * algorithm, so that neither deep nesting nor long reference chains can overflow the thread stack.
+ */
+public final class SchemaDependencyGraph {
+  private final List<String> schemas;
+  private final Map<String, Integer> indices;
+  private final int[][] dependencies;
+  private final Set<String> roots;
+  private final Map<String, Set<String>> danglingReferences;
+  // Computed on first use (see the accessors below).
+  private int[][] dependents;
+  private List<List<String>> components;
+  private boolean[] recursive;
+
+  private SchemaDependencyGraph(Document document) {
+    this.schemas = ImmutableList.copyOf(document.schemas().keySet());
+    this.indices = new HashMap<>();
+    for (int i = 0; i < schemas.size(); i++) {
+      indices.put(schemas.get(i), i);
+    }
+    // References are usually by schema name, which is also the ID of the schema.
+    for (int i = 0; i < schemas.size(); i++) {
+      String id = document.schemas().get(schemas.get(i)).id();
+      if (id != null && !id.isEmpty()) {
+        indices.putIfAbsent(id, i);
+      }
+    }
+
+    Map<String, Set<String>> dangling = new LinkedHashMap<>();
+    this.dependencies = new int[schemas.size()][];
+    for (int i = 0; i < schemas.size(); i++) {
+      String name = schemas.get(i);
+      Set<Integer> referenced = new LinkedHashSet<>();
+      for (String reference : references(document.schemas().get(name))) {
+        Integer index = indices.get(reference);
+        if (index == null) {
+          dangling.computeIfAbsent(name, k -> new LinkedHashSet<>()).add(reference);
+        } else {
+          referenced.add(index);
+        }
+      }
+      dependencies[i] = referenced.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    Set<String> roots = new LinkedHashSet<>();
+    for (Method method : document.methods()) {
+      for (String reference : references(method)) {
+        Integer index = indices.get(reference);
+        if (index == null) {
+          dangling.computeIfAbsent(method.id(), k -> new LinkedHashSet<>()).add(reference);
+        } else {
+          roots.add(schemas.get(index));
+        }
+      }
+    }
+    this.roots = ImmutableSet.copyOf(roots);
+    ImmutableMap.Builder<String, Set<String>> danglingReferences = ImmutableMap.builder();
+    for (Map.Entry<String, Set<String>> entry : dangling.entrySet()) {
+      danglingReferences.put(entry.getKey(), ImmutableSet.copyOf(entry.getValue()));
+    }
+    this.danglingReferences = danglingReferences.build();
+  }
+
+  /**
+   * Builds the dependency graph of the schemas of a document. Prefer {@link
+   * Document#dependencyGraph()}, which builds it only once.
+   *
+   * @param document the document whose schemas to analyze.
+   * @return the dependency graph of the schemas of the document.
+   */
+  public static SchemaDependencyGraph of(Document document) {
+    return new SchemaDependencyGraph(document);
+  }
+
+  /** @return the names of the top-level schemas, in the order they are defined in the document. */
+  public List<String> schemas() {
+    return schemas;
+  }
+
+  /**
+   * @param schema the name or ID of a schema.
+   * @return whether the schema is a top-level schema of the document.
+   */
+  public boolean contains(String schema) {
+    return indices.containsKey(schema);
+  }
+
+  /**
+   * @param schema the name of a top-level schema.
+   * @return the names of the schemas the given schema references, in the order they are first
+   *     referenced.
+   */
+  public List<String> dependencies(String schema) {
+    return names(dependencies[index(schema)]);
+  }
+
+  /**
+   * @param schema the name of a top-level schema.
+   * @return the names of the schemas referencing the given schema, in document order.
+   */
+  public List<String> dependents(String schema) {
+    return names(dependents()[index(schema)]);
+  }
+
+  /** @return the names of the schemas referenced by the methods, in the order of the methods. */
+  public Set<String> roots() {
+    return roots;
+  }
+
+  /**
+   * @return the references to schemas which are not defined in the document, keyed by the name of
+   *     the referencing schema or the ID of the referencing method.
+   */
+  public Map<String, Set<String>> danglingReferences() {
+    return danglingReferences;
+  }
+
+  /**
+   * @return the strongly connected components of the graph (each either a single schema or a group
+   *     of mutually recursive schemas), ordered so that every component comes after the components
+   *     it depends on.
+   */
+  public List<List<String>> components() {
+    computeComponents();
+    return components;
+  }
+
+  /**
+   * @return the names of all the schemas, ordered so that every schema comes after the schemas it
+   *     depends on, unless they are mutually recursive.
+   */
+  public List<String> topologicalOrder() {
+    List<String> order = new ArrayList<>(schemas.size());
+    for (List<String> component : components()) {
+      order.addAll(component);
+    }
+    return order;
+  }
+
+  /**
+   * @param schema the name of a top-level schema.
+   * @return whether the schema references itself, directly or through other schemas.
+   */
+  public boolean isRecursive(String schema) {
+    computeComponents();
+    return recursive[index(schema)];
+  }
+
+  /**
+   * @param schemas the names of top-level schemas.
+   * @return the names of the given schemas and of all the schemas they depend on, directly or
+   *     indirectly, in document order.
+   */
+  public Set<String> reachableFrom(Collection<String> schemas) {
+    boolean[] reached = new boolean[this.schemas.size()];
+    Deque<Integer> stack = new ArrayDeque<>();
+    for (String schema : schemas) {
+      int index = index(schema);
+      if (!reached[index]) {
+        reached[index] = true;
+        stack.push(index);
+      }
+    }
+    while (!stack.isEmpty()) {
+      for (int dependency : dependencies[stack.pop()]) {
+        if (!reached[dependency]) {
+          reached[dependency] = true;
+          stack.push(dependency);
+        }
+      }
+    }
+    Set<String> reachable = new LinkedHashSet<>();
+    for (int i = 0; i < reached.length; i++) {
+      if (reached[i]) {
+        reachable.add(this.schemas.get(i));
+      }
+    }
+    return reachable;
+  }
+
+  /**
+   * @param method a method of the document.
+   * @return the names of the schemas referenced by the request, the response and the parameters of
+   *     the method.
+   */
+  public static Set<String> references(Method method) {
+    Set<String> references = new LinkedHashSet<>();
+    if (method.request() != null) {
+      references.addAll(references(method.request()));
+    }
+    if (method.response() != null) {
+      references.addAll(references(method.response()));
+    }
+    for (Schema parameter : method.parameters().values()) {
+      references.addAll(references(parameter));
+    }
+    return references;
+  }
+
+  // The references in a schema and all of its inline schemas, in the order they are defined.
+  private static Set<String> references(Schema schema) {
+    Set<String> references = new LinkedHashSet<>();
+    Deque<Schema> stack = new ArrayDeque<>();
+    stack.push(schema);
+    while (!stack.isEmpty()) {
+      Schema current = stack.pop();
+      if (current.reference() != null && !current.reference().isEmpty()) {
+        references.add(current.reference());
+      }
+      // Pushed in reverse, so that nested schemas are popped in the order they are defined.
+      List<Schema> nested = new ArrayList<>(current.properties().values());
+      if (current.items() != null) {
+        nested.add(current.items());
+      }
+      if (current.additionalProperties() != null) {
+        nested.add(current.additionalProperties());
+      }
+      for (int i = nested.size() - 1; i >= 0; i--) {
+        stack.push(nested.get(i));
+      }
+    }
+    return references;
+  }
+
+  // The graph is shared by the conversion passes, which may run concurrently.
+  private synchronized int[][] dependents() {
+    if (dependents == null) {
+      dependents = invert(dependencies);
+    }
+    return dependents;
+  }
+
+  private synchronized void computeComponents() {
+    if (components == null) {
+      recursive = new boolean[schemas.size()];
+      components = stronglyConnectedComponents(recursive);
+    }
+  }
+
+  // Tarjan's algorithm, with an explicit stack of the vertices being visited along with the next
+  // edge of each to follow. Components are completed after all the components they depend on.
+  private List<List<String>> stronglyConnectedComponents(boolean[] recursive) {
+    int count = schemas.size();
+    int[] index = new int[count];
+    int[] lowLink = new int[count];
+    boolean[] onStack = new boolean[count];
+    Arrays.fill(index, -1);
+    int[] visitStack = new int[count];
+    int[] nextEdge = new int[count];
+    Deque<Integer> componentStack = new ArrayDeque<>();
+    List<List<String>> components = new ArrayList<>();
+    int nextIndex = 0;
+
+    for (int start = 0; start < count; start++) {
+      if (index[start] >= 0) {
+        continue;
+      }
+      int depth = 0;
+      visitStack[depth] = start;
+      nextEdge[depth] = 0;
+      index[start] = lowLink[start] = nextIndex++;
+      componentStack.push(start);
+      onStack[start] = true;
+
+      while (depth >= 0) {
+        int vertex = visitStack[depth];
+        if (nextEdge[depth] < dependencies[vertex].length) {
+          int dependency = dependencies[vertex][nextEdge[depth]++];
+          if (dependency == vertex) {
+            recursive[vertex] = true;
+          }
+          if (index[dependency] < 0) {
+            depth++;
+            visitStack[depth] = dependency;
+            nextEdge[depth] = 0;
+            index[dependency] = lowLink[dependency] = nextIndex++;
+            componentStack.push(dependency);
+            onStack[dependency] = true;
+          } else if (onStack[dependency]) {
+            lowLink[vertex] = Math.min(lowLink[vertex], index[dependency]);
+          }
+          continue;
+        }
+
+        depth--;
+        if (depth >= 0) {
+          int parent = visitStack[depth];
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[vertex]);
+        }
+        if (lowLink[vertex] == index[vertex]) {
+          List<Integer> members = new ArrayList<>();
+          int member;
+          do {
+            member = componentStack.pop();
+            onStack[member] = false;
+            members.add(member);
+          } while (member != vertex);
+          members.sort(null);
+          if (members.size() > 1) {
+            for (int m : members) {
+              recursive[m] = true;
+            }
+          }
+          components.add(names(members.stream().mapToInt(Integer::intValue).toArray()));
+        }
+      }
+    }
+    return ImmutableList.copyOf(components);
+  }
+
+  private static int[][] invert(int[][] edges) {
+    List<List<Integer>> inverted = new ArrayList<>();
+    for (int i = 0; i < edges.length; i++) {
+      inverted.add(new ArrayList<>());
+    }
+    for (int from = 0; from < edges.length; from++) {
+      for (int to : edges[from]) {
+        inverted.get(to).add(from);
+      }
+    }
+    int[][] result = new int[edges.length][];
+    for (int i = 0; i < edges.length; i++) {
+      result[i] = inverted.get(i).stream().mapToInt(Integer::intValue).toArray();
+    }
+    return result;
+  }
+
+  private int index(String schema) {
+    Integer index = indices.get(schema);
+    if (index == null) {
+      throw new IllegalArgumentException("unknown schema: " + schema);
+    }
+    return index;
+  }
+
+  private List<String> names(int[] indices) {
+    List<String> names = new ArrayList<>(indices.length);
+    for (int index : indices) {
+      names.add(schemas.get(index));
+    }
+    return names;
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Recorded when a converted message is compared with an existing one of the same name. */
+@Name("com.google.cloud.discotoproto3converter.MessageCollisionCheck")
+@Label("Message Collision Check")
+@Category("Disco to Proto3 Converter")
+@Description("Comparison of a converted message with an existing message of the same name")
+@StackTrace(false)
+public class MessageCollisionCheckEvent extends Event {
+  @Label("Message Name")
+  public String messageName;
+
+  @Label("Schema Path")
+  public String schemaPath;
+
+  @Label("Collision")
+  public boolean collision;
+}
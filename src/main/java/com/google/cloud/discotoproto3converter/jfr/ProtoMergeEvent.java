@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Recorded when a converted proto is merged with its previous version. */
+@Name("com.google.cloud.discotoproto3converter.ProtoMerge")
+@Label("Proto Merge")
+@Category("Disco to Proto3 Converter")
+@Description("Merging of a converted proto with its previous version")
+@StackTrace(false)
+public class ProtoMergeEvent extends Event {
+  @Label("Previous Messages")
+  public int previousMessages;
+
+  @Label("Merged Messages")
+  public int mergedMessages;
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for each (possibly nested) schema converted into a proto field. High volume, so disabled
+ * by default.
+ */
+@Name("com.google.cloud.discotoproto3converter.SchemaConversion")
+@Label("Schema Conversion")
+@Category("Disco to Proto3 Converter")
+@Description("Conversion of a Discovery schema (including its nested schemas) into a proto field")
+@Enabled(false)
+@StackTrace(false)
+public class SchemaConversionEvent extends Event {
+  @Label("Schema Path")
+  public String schemaPath;
+
+  @Label("Depth")
+  public int depth;
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Represents the input or output configuration guiding the Discovery-to-proto conversion.
@@ -123,6 +124,21 @@ public class ConversionConfiguration {
     return inlineSchema.findProtoTypeNameForPath(schemaPath);
   }
 
+  /**
+   * Returns the names of the top-level schemas containing the inline schemas configured so far
+   * (e.g. in the input config), as found in the first component of their paths after "schemas".
+   */
+  public Set<String> getInlineFieldSchemaNames() {
+    Set<String> schemaNames = new TreeSet<>();
+    for (String fieldPath : this.inlineFields.keySet()) {
+      String[] components = fieldPath.split("\\.", 3);
+      if (components.length > 1 && components[0].equals("schemas")) {
+        schemaNames.add(components[1]);
+      }
+    }
+    return schemaNames;
+  }
+
   /**
    * Registers in this.inlineFields a single instance of `schema` being used as the `protoTypeName`
    * type of the field at `fieldPath`. If `readingFromFile`, performs some consistency checks that
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import com.google.api.AnnotationsProto;
+import com.google.api.ClientProto;
+import com.google.api.FieldBehavior;
+import com.google.api.FieldBehaviorProto;
+import com.google.api.HttpRule;
+import com.google.api.ResourceProto;
+import com.google.cloud.ExtendedOperationsProto;
+import com.google.cloud.OperationResponseMapping;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.AnyProto;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldOptions;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.FileOptions;
+import com.google.protobuf.DescriptorProtos.MessageOptions;
+import com.google.protobuf.DescriptorProtos.MethodDescriptorProto;
+import com.google.protobuf.DescriptorProtos.MethodOptions;
+import com.google.protobuf.DescriptorProtos.OneofDescriptorProto;
+import com.google.protobuf.DescriptorProtos.ServiceDescriptorProto;
+import com.google.protobuf.DescriptorProtos.ServiceOptions;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.StructProto;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Builds the google.protobuf.FileDescriptorProto of the proto file Proto3Writer writes, directly
+// from the ProtoFile model, so that the consumers which only need descriptors do not have to run
+// protoc on the text proto file. The descriptor has the same field numbers, file options and
+// google.api and google.cloud options as the text proto file, but no comments (source code info).
+// The written FileDescriptorSet also includes the files it imports, dependencies first, like the
+// output of protoc with --include_imports.
+public class DescriptorSetWriter {
+  private static final Map<String, FieldDescriptorProto.Type> SCALAR_TYPES =
+      ImmutableMap.<String, FieldDescriptorProto.Type>builder()
+          .put("bool", FieldDescriptorProto.Type.TYPE_BOOL)
+          .put("string", FieldDescriptorProto.Type.TYPE_STRING)
+          .put("bytes", FieldDescriptorProto.Type.TYPE_BYTES)
+          .put("int32", FieldDescriptorProto.Type.TYPE_INT32)
+          .put("fixed32", FieldDescriptorProto.Type.TYPE_FIXED32)
+          .put("uint32", FieldDescriptorProto.Type.TYPE_UINT32)
+          .put("int64", FieldDescriptorProto.Type.TYPE_INT64)
+          .put("fixed64", FieldDescriptorProto.Type.TYPE_FIXED64)
+          .put("uint64", FieldDescriptorProto.Type.TYPE_UINT64)
+          .put("float", FieldDescriptorProto.Type.TYPE_FLOAT)
+          .put("double", FieldDescriptorProto.Type.TYPE_DOUBLE)
+          .build();
+
+  // The descriptors of the files the generated proto files may import, by import path.
+  private static final Map<String, FileDescriptor> IMPORTED_FILES = new HashMap<>();
+
+  static {
+    for (FileDescriptor file :
+        new FileDescriptor[] {
+          AnnotationsProto.getDescriptor(),
+          ClientProto.getDescriptor(),
+          FieldBehaviorProto.getDescriptor(),
+          ResourceProto.getDescriptor(),
+          ExtendedOperationsProto.getDescriptor(),
+          AnyProto.getDescriptor(),
+          StructProto.getDescriptor()
+        }) {
+      IMPORTED_FILES.put(file.getName(), file);
+    }
+  }
+
+  private final Proto3Writer proto3Writer = new Proto3Writer();
+
+  // Returns the descriptor of a file the generated proto files may import, or null.
+  static FileDescriptor getImportedFile(String importPath) {
+    return IMPORTED_FILES.get(importPath);
+  }
+
+  // Writes the binary FileDescriptorSet of the proto file named fileName (in the directory of its
+  // package) with the messages and services of protoFile.
+  public void writeTo(OutputStream outputStream, ProtoFile protoFile, String fileName)
+      throws IOException {
+    getFileDescriptorSet(protoFile, fileName).writeTo(outputStream);
+  }
+
+  public FileDescriptorSet getFileDescriptorSet(ProtoFile protoFile, String fileName) {
+    FileDescriptorProto fileProto = getFileDescriptorProto(protoFile, fileName);
+    Map<String, FileDescriptorProto> files = new LinkedHashMap<>();
+    for (String dependency : fileProto.getDependencyList()) {
+      addWithDependencies(IMPORTED_FILES.get(dependency), files);
+    }
+    files.put(fileProto.getName(), fileProto);
+    return FileDescriptorSet.newBuilder().addAllFile(files.values()).build();
+  }
+
+  private static void addWithDependencies(
+      FileDescriptor file, Map<String, FileDescriptorProto> files) {
+    if (files.containsKey(file.getName())) {
+      return;
+    }
+    for (FileDescriptor dependency : file.getDependencies()) {
+      addWithDependencies(dependency, files);
+    }
+    files.put(file.getName(), file.toProto());
+  }
+
+  public FileDescriptorProto getFileDescriptorProto(ProtoFile protoFile, String fileName) {
+    String pkg = protoFile.getMetadata().getProtoPkg();
+    FileDescriptorProto.Builder file =
+        FileDescriptorProto.newBuilder()
+            .setName(pkg.replace('.', '/') + "/" + fileName)
+            .setPackage(pkg)
+            .setSyntax("proto3")
+            .setOptions(getFileOptions(pkg));
+    Set<String> imports = Proto3Writer.getImports(protoFile);
+    for (String importPath : imports) {
+      if (!IMPORTED_FILES.containsKey(importPath)) {
+        throw new IllegalStateException("no descriptor for imported file " + importPath);
+      }
+      file.addDependency(importPath);
+    }
+
+    Map<String, Message> messages = protoFile.getMessages();
+    for (Message message : messages.values()) {
+      if (message.isEnum()) {
+        file.addEnumType(getEnumDescriptorProto(message));
+      } else {
+        file.addMessageType(getDescriptorProto(message, messages, pkg));
+      }
+    }
+    for (GrpcService service : protoFile.getServices().values()) {
+      file.addService(getServiceDescriptorProto(service, pkg));
+    }
+    return file.build();
+  }
+
+  private FileOptions getFileOptions(String pkg) {
+    Map<String, Object> options = proto3Writer.getFileOptions(pkg);
+    return FileOptions.newBuilder()
+        .setCsharpNamespace((String) options.get("csharp_namespace"))
+        .setGoPackage((String) options.get("go_package"))
+        .setJavaMultipleFiles((Boolean) options.get("java_multiple_files"))
+        .setJavaPackage((String) options.get("java_package"))
+        .setPhpNamespace((String) options.get("php_namespace"))
+        .setRubyPackage((String) options.get("ruby_package"))
+        .build();
+  }
+
+  private static EnumDescriptorProto getEnumDescriptorProto(Message enumMessage) {
+    EnumDescriptorProto.Builder enumProto =
+        EnumDescriptorProto.newBuilder().setName(enumMessage.getName());
+    for (Map.Entry<Integer, Field> entry : enumMessage.getFieldsWithNumbers().entrySet()) {
+      enumProto.addValue(
+          EnumValueDescriptorProto.newBuilder()
+              .setName(entry.getValue().getName())
+              .setNumber(entry.getKey()));
+    }
+    return enumProto.build();
+  }
+
+  private static DescriptorProto getDescriptorProto(
+      Message message, Map<String, Message> messages, String pkg) {
+    String messageName = "." + pkg + "." + message.getName();
+    DescriptorProto.Builder messageProto = DescriptorProto.newBuilder().setName(message.getName());
+    for (Message enumMessage : message.getEnums()) {
+      messageProto.addEnumType(getEnumDescriptorProto(enumMessage));
+    }
+
+    for (Map.Entry<Integer, Field> entry : message.getFieldsWithNumbers().entrySet()) {
+      Field field = entry.getValue();
+      FieldDescriptorProto.Builder fieldProto =
+          FieldDescriptorProto.newBuilder()
+              .setName(field.getName())
+              .setNumber(entry.getKey())
+              .setJsonName(getJsonName(field.getName()))
+              .setLabel(
+                  field.isRepeated()
+                      ? FieldDescriptorProto.Label.LABEL_REPEATED
+                      : FieldDescriptorProto.Label.LABEL_OPTIONAL);
+
+      if (field.getKeyType() != null) {
+        // Maps are repeated fields of a nested map entry message.
+        String entryName = getMapEntryName(field.getName());
+        messageProto.addNestedType(
+            DescriptorProto.newBuilder()
+                .setName(entryName)
+                .addField(
+                    setType(
+                        FieldDescriptorProto.newBuilder()
+                            .setName("key")
+                            .setNumber(1)
+                            .setJsonName("key")
+                            .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL),
+                        field.getKeyType(),
+                        message,
+                        messages,
+                        pkg))
+                .addField(
+                    setType(
+                        FieldDescriptorProto.newBuilder()
+                            .setName("value")
+                            .setNumber(2)
+                            .setJsonName("value")
+                            .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL),
+                        field.getValueType(),
+                        message,
+                        messages,
+                        pkg))
+                .setOptions(MessageOptions.newBuilder().setMapEntry(true)));
+        fieldProto
+            .setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+            .setTypeName(messageName + "." + entryName);
+      } else {
+        setType(fieldProto, field.getValueType(), message, messages, pkg);
+      }
+
+      if (field.isOptional() && !field.isRepeated()) {
+        // Proto3 optional fields are in synthetic oneofs, which come after all the real ones.
+        fieldProto.setProto3Optional(true).setOneofIndex(messageProto.getOneofDeclCount());
+        messageProto.addOneofDecl(OneofDescriptorProto.newBuilder().setName("_" + field.getName()));
+      }
+      if (!field.getOptions().isEmpty()) {
+        fieldProto.setOptions(getFieldOptions(field));
+      }
+      messageProto.addField(fieldProto);
+    }
+    return messageProto.build();
+  }
+
+  // Sets the type of a field of the given message to valueType. Like protoc, the name of a
+  // message or enum type is looked up first among the enums nested in the message, then among the
+  // top-level messages and enums.
+  private static FieldDescriptorProto.Builder setType(
+      FieldDescriptorProto.Builder fieldProto,
+      Message valueType,
+      Message message,
+      Map<String, Message> messages,
+      String pkg) {
+    String typeName = valueType.getName();
+    FieldDescriptorProto.Type scalarType = SCALAR_TYPES.get(typeName);
+    if (scalarType != null) {
+      return fieldProto.setType(scalarType);
+    }
+    if (typeName.startsWith("google.protobuf.")) {
+      return fieldProto.setType(FieldDescriptorProto.Type.TYPE_MESSAGE).setTypeName("." + typeName);
+    }
+
+    String scope = null;
+    for (Message enumMessage : message.getEnums()) {
+      if (enumMessage.getName().equals(typeName)) {
+        scope = message.getName() + ".";
+      }
+    }
+    if (scope == null) {
+      String topLevelName = typeName.split("\\.", 2)[0];
+      if (!messages.containsKey(topLevelName)) {
+        throw new IllegalArgumentException(
+            "unresolved type " + typeName + " of a field of " + message.getName());
+      }
+      scope = "";
+    }
+    return fieldProto
+        .setType(
+            valueType.isEnum()
+                ? FieldDescriptorProto.Type.TYPE_ENUM
+                : FieldDescriptorProto.Type.TYPE_MESSAGE)
+        .setTypeName("." + pkg + "." + scope + typeName);
+  }
+
+  private static FieldOptions getFieldOptions(Field field) {
+    FieldOptions.Builder options = FieldOptions.newBuilder();
+    for (Option option : field.getOptions()) {
+      String value = String.valueOf(getScalarValue(option));
+      switch (option.getName()) {
+        case "google.api.field_behavior":
+          options.addExtension(FieldBehaviorProto.fieldBehavior, FieldBehavior.valueOf(value));
+          break;
+        case "google.cloud.operation_field":
+          options.setExtension(
+              ExtendedOperationsProto.operationField, OperationResponseMapping.valueOf(value));
+          break;
+        case "google.cloud.operation_request_field":
+          options.setExtension(ExtendedOperationsProto.operationRequestField, value);
+          break;
+        case "google.cloud.operation_response_field":
+          options.setExtension(ExtendedOperationsProto.operationResponseField, value);
+          break;
+        default:
+          throw unsupportedOption(option);
+      }
+    }
+    return options.build();
+  }
+
+  private static ServiceDescriptorProto getServiceDescriptorProto(GrpcService service, String pkg) {
+    ServiceDescriptorProto.Builder serviceProto =
+        ServiceDescriptorProto.newBuilder().setName(service.getName());
+    ServiceOptions.Builder serviceOptions = ServiceOptions.newBuilder();
+    for (Option option : service.getOptions()) {
+      String value = (String) getScalarValue(option);
+      switch (option.getName()) {
+        case "google.api.default_host":
+          serviceOptions.setExtension(ClientProto.defaultHost, value);
+          break;
+        case "google.api.oauth_scopes":
+          serviceOptions.setExtension(ClientProto.oauthScopes, value);
+          break;
+        case "google.api.api_version":
+          serviceOptions.setExtension(ClientProto.apiVersion, value);
+          break;
+        default:
+          throw unsupportedOption(option);
+      }
+    }
+    if (!service.getOptions().isEmpty()) {
+      serviceProto.setOptions(serviceOptions);
+    }
+
+    for (GrpcMethod method : service.getMethods()) {
+      MethodDescriptorProto.Builder methodProto =
+          MethodDescriptorProto.newBuilder()
+              .setName(method.getName())
+              .setInputType("." + pkg + "." + method.getInput().getName())
+              .setOutputType("." + pkg + "." + method.getOutput().getName());
+      if (!method.getOptions().isEmpty()) {
+        methodProto.setOptions(getMethodOptions(method));
+      }
+      serviceProto.addMethod(methodProto);
+    }
+    return serviceProto.build();
+  }
+
+  private static MethodOptions getMethodOptions(GrpcMethod method) {
+    MethodOptions.Builder options = MethodOptions.newBuilder();
+    for (Option option : method.getOptions()) {
+      switch (option.getName()) {
+        case "google.api.http":
+          options.setExtension(AnnotationsProto.http, getHttpRule(option));
+          break;
+        case "google.api.method_signature":
+          options.addExtension(ClientProto.methodSignature, (String) getScalarValue(option));
+          break;
+        case "google.cloud.operation_service":
+          options.setExtension(
+              ExtendedOperationsProto.operationService, (String) getScalarValue(option));
+          break;
+        case "google.cloud.operation_polling_method":
+          options.setExtension(
+              ExtendedOperationsProto.operationPollingMethod,
+              Boolean.valueOf(String.valueOf(getScalarValue(option))));
+          break;
+        default:
+          throw unsupportedOption(option);
+      }
+    }
+    return options.build();
+  }
+
+  private static HttpRule getHttpRule(Option option) {
+    HttpRule.Builder httpRule = HttpRule.newBuilder();
+    for (Map.Entry<String, Object> property : option.getProperties().entrySet()) {
+      String value = (String) property.getValue();
+      switch (property.getKey()) {
+        case "get":
+          httpRule.setGet(value);
+          break;
+        case "put":
+          httpRule.setPut(value);
+          break;
+        case "post":
+          httpRule.setPost(value);
+          break;
+        case "delete":
+          httpRule.setDelete(value);
+          break;
+        case "patch":
+          httpRule.setPatch(value);
+          break;
+        case "body":
+          httpRule.setBody(value);
+          break;
+        case "response_body":
+          httpRule.setResponseBody(value);
+          break;
+        default:
+          throw new IllegalArgumentException(
+              "unsupported google.api.http property " + property.getKey());
+      }
+    }
+    return httpRule.build();
+  }
+
+  private static Object getScalarValue(Option option) {
+    Object value = option.getProperties().get("");
+    if (value == null || option.getProperties().size() != 1) {
+      throw unsupportedOption(option);
+    }
+    return value;
+  }
+
+  private static IllegalArgumentException unsupportedOption(Option option) {
+    return new IllegalArgumentException(
+        "unsupported option " + option.getName() + " = " + option.getProperties());
+  }
+
+  // The JSON name protoc derives from a field name: the underscores are removed, and the letters
+  // after them capitalized.
+  static String getJsonName(String fieldName) {
+    StringBuilder jsonName = new StringBuilder();
+    boolean capitalizeNext = false;
+    for (char c : fieldName.toCharArray()) {
+      if (c == '_') {
+        capitalizeNext = true;
+      } else {
+        jsonName.append(capitalizeNext ? Character.toUpperCase(c) : c);
+        capitalizeNext = false;
+      }
+    }
+    return jsonName.toString();
+  }
+
+  // The name protoc gives to the entry message of a map field.
+  static String getMapEntryName(String fieldName) {
+    StringBuilder entryName = new StringBuilder();
+    boolean capitalizeNext = true;
+    for (char c : fieldName.toCharArray()) {
+      if (c == '_') {
+        capitalizeNext = true;
+      } else {
+        entryName.append(capitalizeNext ? Character.toUpperCase(c) : c);
+        capitalizeNext = false;
+      }
+    }
+    return entryName.append("Entry").toString();
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Validates a proto file model by building the protobuf descriptors of the proto file Proto3Writer
+// writes in memory (see DescriptorSetWriter), so that an invalid proto file is reported right after
+// the conversion instead of when protoc compiles it in a later build step. On top of the checks of
+// the protobuf Java runtime (unresolved types, duplicate names and field numbers), it checks the
+// rules protoc enforces but the runtime does not: the field number ranges, the zero first value of
+// proto3 enums, the C++ scoping of enum values and the uniqueness of the JSON names of fields.
+public class DescriptorValidator {
+  private static final int MAX_FIELD_NUMBER = (1 << 29) - 1;
+  private static final int FIRST_RESERVED_FIELD_NUMBER = 19000;
+  private static final int LAST_RESERVED_FIELD_NUMBER = 19999;
+
+  private DescriptorValidator() {}
+
+  // Returns the descriptor of the proto file named fileName (in the directory of its package) with
+  // the messages and services of protoFile, or throws an IllegalStateException listing all the
+  // problems found.
+  public static FileDescriptor validate(ProtoFile protoFile, String fileName) {
+    FileDescriptorProto fileProto;
+    try {
+      fileProto = new DescriptorSetWriter().getFileDescriptorProto(protoFile, fileName);
+    } catch (IllegalArgumentException e) {
+      throw invalid(fileName, e.getMessage());
+    }
+
+    List<String> problems = findProblems(fileProto);
+    if (!problems.isEmpty()) {
+      throw invalid(fileProto.getName(), String.join("\n  ", problems));
+    }
+
+    FileDescriptor[] dependencies = new FileDescriptor[fileProto.getDependencyCount()];
+    for (int i = 0; i < dependencies.length; i++) {
+      dependencies[i] = DescriptorSetWriter.getImportedFile(fileProto.getDependency(i));
+    }
+    try {
+      return FileDescriptor.buildFrom(fileProto, dependencies);
+    } catch (DescriptorValidationException e) {
+      throw invalid(fileProto.getName(), e.getMessage());
+    }
+  }
+
+  // The problems protoc reports but the protobuf Java runtime does not, each prefixed with the
+  // full name of the element it is about.
+  static List<String> findProblems(FileDescriptorProto fileProto) {
+    List<String> problems = new ArrayList<>();
+    String pkg = fileProto.getPackage();
+    checkScope(pkg, fileProto.getMessageTypeList(), fileProto.getEnumTypeList(), problems);
+    for (DescriptorProto message : fileProto.getMessageTypeList()) {
+      checkMessage(pkg + "." + message.getName(), message, problems);
+    }
+    return problems;
+  }
+
+  private static void checkMessage(
+      String fullName, DescriptorProto message, List<String> problems) {
+    checkScope(fullName, message.getNestedTypeList(), message.getEnumTypeList(), problems);
+
+    Set<String> symbols = new HashSet<>();
+    for (DescriptorProto nested : message.getNestedTypeList()) {
+      symbols.add(nested.getName());
+    }
+    for (EnumDescriptorProto enumProto : message.getEnumTypeList()) {
+      symbols.add(enumProto.getName());
+      for (EnumValueDescriptorProto value : enumProto.getValueList()) {
+        symbols.add(value.getName());
+      }
+    }
+    Map<String, String> jsonNames = new HashMap<>();
+    for (FieldDescriptorProto field : message.getFieldList()) {
+      String fieldName = fullName + "." + field.getName();
+      int number = field.getNumber();
+      if (number < 1 || number > MAX_FIELD_NUMBER) {
+        problems.add(fieldName + ": field number " + number + " is out of range");
+      } else if (number >= FIRST_RESERVED_FIELD_NUMBER && number <= LAST_RESERVED_FIELD_NUMBER) {
+        problems.add(
+            fieldName
+                + ": field number "
+                + number
+                + " is reserved for the protobuf implementation");
+      }
+      if (symbols.contains(field.getName())) {
+        problems.add(
+            fieldName + ": \"" + field.getName() + "\" is already defined in \"" + fullName + "\"");
+      }
+      String otherField = jsonNames.putIfAbsent(field.getJsonName(), field.getName());
+      if (otherField != null) {
+        problems.add(
+            fieldName
+                + ": the JSON name \""
+                + field.getJsonName()
+                + "\" conflicts with the JSON name of field \""
+                + otherField
+                + "\"");
+      }
+    }
+
+    for (DescriptorProto nested : message.getNestedTypeList()) {
+      checkMessage(fullName + "." + nested.getName(), nested, problems);
+    }
+  }
+
+  // Checks the enums defined in a scope (a package or a message). Enum values use C++ scoping
+  // rules: they are siblings of their enum type, not children of it, so the values of the enums of
+  // a scope must be unique, and must not be named after the messages and enums of the scope.
+  private static void checkScope(
+      String scope,
+      List<DescriptorProto> messages,
+      List<EnumDescriptorProto> enums,
+      List<String> problems) {
+    Map<String, String> definitions = new HashMap<>();
+    for (DescriptorProto message : messages) {
+      definitions.put(message.getName(), scope + "." + message.getName());
+    }
+    for (EnumDescriptorProto enumProto : enums) {
+      definitions.put(enumProto.getName(), scope + "." + enumProto.getName());
+    }
+
+    for (EnumDescriptorProto enumProto : enums) {
+      String enumName = scope + "." + enumProto.getName();
+      if (enumProto.getValueCount() == 0) {
+        problems.add(enumName + ": enums must contain at least one value");
+        continue;
+      }
+      if (enumProto.getValue(0).getNumber() != 0) {
+        problems.add(enumName + ": the first enum value must be zero in proto3");
+      }
+      Set<Integer> numbers = new HashSet<>();
+      for (EnumValueDescriptorProto value : enumProto.getValueList()) {
+        if (!numbers.add(value.getNumber())) {
+          problems.add(
+              enumName
+                  + "."
+                  + value.getName()
+                  + ": enum value number "
+                  + value.getNumber()
+                  + " is already used");
+        }
+        String other = definitions.putIfAbsent(value.getName(), enumName + "." + value.getName());
+        if (other != null) {
+          problems.add(
+              scope
+                  + "."
+                  + value.getName()
+                  + ": the value of "
+                  + enumName
+                  + " conflicts with "
+                  + other
+                  + " (enum values are siblings of their enum type)");
+        }
+      }
+    }
+  }
+
+  private static IllegalStateException invalid(String fileName, String problems) {
+    return new IllegalStateException("invalid proto file " + fileName + ":\n  " + problems);
+  }
+}
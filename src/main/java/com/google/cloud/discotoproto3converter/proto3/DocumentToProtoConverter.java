@@ -21,16 +21,27 @@ import com.google.cloud.discotoproto3converter.disco.Method;
 import com.google.cloud.discotoproto3converter.disco.Name;
 import com.google.cloud.discotoproto3converter.disco.Schema;
 import com.google.cloud.discotoproto3converter.disco.Schema.Format;
+import com.google.cloud.discotoproto3converter.disco.SchemaDependencyGraph;
+import com.google.cloud.discotoproto3converter.jfr.LroMatchingEvent;
+import com.google.cloud.discotoproto3converter.jfr.MessageCollisionCheckEvent;
+import com.google.cloud.discotoproto3converter.jfr.NameConversionEvent;
+import com.google.cloud.discotoproto3converter.jfr.SchemaConversionEvent;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
@@ -44,9 +55,24 @@ public class DocumentToProtoConverter {
 
   private static final Pattern RELATIVE_LINK = Pattern.compile("(?<linkName>\\[[\\w\\s]+])\\(/");
 
+  // Parts of the conversion state read and written by the conversion passes.
+  private static final String DOCUMENT = "document";
+  private static final String MESSAGES = "messages";
+  private static final String SERVICES = "services";
+  // The options of the fields, methods and services, which are owned by the messages and services
+  // but read and written separately from their structure.
+  private static final String OPTIONS = "options";
+  private static final String CONFIG = "config";
+  private static final String ENUM_FIELDS = "enumFields";
+  private static final String LRO = "lro";
+  private static final String ANY = "any";
+  private static final String OUTPUT_CONFIG = "outputConfig";
+
   private final ProtoFile protoFile = new ProtoFile();
   private final Set<String> serviceIgnoreSet;
   private final Set<String> messageIgnoreSet;
+  private final boolean pruneUnreachableMessages;
+  private final Set<String> messageKeepSet;
   private final String relativeLinkPrefix;
   private final boolean enumsAsStrings;
   private boolean schemaRead;
@@ -54,6 +80,8 @@ public class DocumentToProtoConverter {
   private ConversionConfiguration config;
   private String outputConfigContents;
 
+  private final PassManager passManager = new PassManager(true);
+
   // Set this to "true" to get some tracing output on stderr during development. Leave this as
   // "false" for production code.
   private final boolean trace = false;
@@ -70,8 +98,67 @@ public class DocumentToProtoConverter {
       boolean enumsAsStrings,
       String inputConfig,
       String timeStamp) {
+    this(
+        document,
+        documentFileName,
+        serviceIgnoreSet,
+        messageIgnoreSet,
+        relativeLinkPrefix,
+        enumsAsStrings,
+        inputConfig,
+        timeStamp,
+        false,
+        Collections.emptySet());
+  }
+
+  // If pruneUnreachableMessages is set, only the schemas the converted messages can reach are
+  // converted, starting from the requests, responses and parameters of the methods of the services
+  // which are not ignored, the schemas whose inline schemas are named in the input config, and the
+  // schemas of the messages in messageKeepSet (e.g. the messages of the previous proto file, which
+  // would otherwise be removed from the merged proto file).
+  public DocumentToProtoConverter(
+      Document document,
+      String documentFileName,
+      Set<String> serviceIgnoreSet,
+      Set<String> messageIgnoreSet,
+      String relativeLinkPrefix,
+      boolean enumsAsStrings,
+      String inputConfig,
+      String timeStamp,
+      boolean pruneUnreachableMessages,
+      Set<String> messageKeepSet) {
+    this(
+        document,
+        documentFileName,
+        serviceIgnoreSet,
+        messageIgnoreSet,
+        relativeLinkPrefix,
+        enumsAsStrings,
+        inputConfig,
+        timeStamp,
+        pruneUnreachableMessages,
+        messageKeepSet,
+        getConverterVersion());
+  }
+
+  // The converter version is recorded in the output config; hermetic conversions leave it empty,
+  // since it depends on how the converter was built (see getConverterVersion()).
+  public DocumentToProtoConverter(
+      Document document,
+      String documentFileName,
+      Set<String> serviceIgnoreSet,
+      Set<String> messageIgnoreSet,
+      String relativeLinkPrefix,
+      boolean enumsAsStrings,
+      String inputConfig,
+      String timeStamp,
+      boolean pruneUnreachableMessages,
+      Set<String> messageKeepSet,
+      String converterVersion) {
     this.serviceIgnoreSet = serviceIgnoreSet;
     this.messageIgnoreSet = messageIgnoreSet;
+    this.pruneUnreachableMessages = pruneUnreachableMessages;
+    this.messageKeepSet = messageKeepSet;
     this.relativeLinkPrefix = relativeLinkPrefix;
     this.protoFile.setMetadata(readDocumentMetadata(document, documentFileName));
     this.enumsAsStrings = enumsAsStrings;
@@ -83,17 +170,58 @@ public class DocumentToProtoConverter {
 
     this.config = ConversionConfiguration.fromJSON(inputConfig);
     this.config.setConfigMetadata(
-        getConverterVersion(), document.version(), document.revision(), timeStamp);
+        converterVersion, document.version(), document.revision(), timeStamp);
 
-    readSchema(document);
-    readResources(document);
-    cleanupEnumNamingConflicts();
-    this.protoFile.setHasLroDefinitions(applyLroConfiguration());
-    this.protoFile.setHasAnyFields(checkAnyFields());
-    this.protoFile.setUsesStructProto(this.usesStructProto);
-    convertEnumFieldsToStrings();
+    registerPasses(document);
+    // The output config is only serialized if requested, see getOutputConfig().
+    passManager.run(PassManager.resources(MESSAGES, SERVICES, LRO, ANY));
+  }
 
-    this.outputConfigContents = this.config.toJSON();
+  // The conversion passes, along with the parts of the conversion state they read and write. Enum
+  // naming conflicts are cleaned up before the LRO configuration is applied, since the latter
+  // compares fields (including their enum types). The LRO configuration only adds options, which
+  // the Any fields check never reads (it only follows the fields of the messages), so the two may
+  // run concurrently.
+  private void registerPasses(Document document) {
+    Map<String, SortedSet<Field>> enumFieldsByMessage = new LinkedHashMap<>();
+    passManager.addPass(
+        "readSchema",
+        PassManager.resources(DOCUMENT),
+        PassManager.resources(MESSAGES, CONFIG),
+        () -> readSchema(document));
+    passManager.addPass(
+        "readResources",
+        PassManager.resources(DOCUMENT, MESSAGES),
+        PassManager.resources(MESSAGES, SERVICES, OPTIONS, CONFIG),
+        () -> {
+          readResources(document);
+          this.protoFile.setUsesStructProto(this.usesStructProto);
+        });
+    passManager.addPass(
+        "sweepMessages",
+        PassManager.resources(MESSAGES),
+        PassManager.resources(MESSAGES, ENUM_FIELDS),
+        () -> enumFieldsByMessage.putAll(sweepMessages()));
+    passManager.addPass(
+        "applyLroConfiguration",
+        PassManager.resources(MESSAGES, SERVICES, OPTIONS),
+        PassManager.resources(OPTIONS, LRO),
+        () -> this.protoFile.setHasLroDefinitions(applyLroConfiguration()));
+    passManager.addPass(
+        "checkAnyFields",
+        PassManager.resources(MESSAGES, SERVICES),
+        PassManager.resources(ANY),
+        () -> this.protoFile.setHasAnyFields(checkAnyFields()));
+    passManager.addPass(
+        "convertEnumFieldsToStrings",
+        PassManager.resources(ENUM_FIELDS, OPTIONS, LRO),
+        PassManager.resources(MESSAGES),
+        () -> convertEnumFieldsToStrings(enumFieldsByMessage));
+    passManager.addPass(
+        "serializeConfig",
+        PassManager.resources(CONFIG),
+        PassManager.resources(OUTPUT_CONFIG),
+        () -> this.outputConfigContents = this.config.toJSON());
   }
 
   public static String getConverterVersion() {
@@ -132,9 +260,20 @@ public class DocumentToProtoConverter {
   }
 
   public String getOutputConfig() {
+    passManager.run(PassManager.resources(OUTPUT_CONFIG));
     return this.outputConfigContents;
   }
 
+  /** Returns the time (in nanoseconds) spent in each conversion pass run so far. */
+  public Map<String, Long> getPassTimings() {
+    return passManager.getTimingsNanos();
+  }
+
+  /** Returns the resources used by each conversion pass run so far. */
+  public Map<String, PhaseUsage> getPassUsage() {
+    return passManager.getUsage();
+  }
+
   public ProtoFile getProtoFile() {
     return protoFile;
   }
@@ -151,59 +290,132 @@ public class DocumentToProtoConverter {
   }
 
   private void readSchema(Document document) {
+    Set<String> reachableSchemas = pruneUnreachableMessages ? reachableSchemas(document) : null;
     for (Map.Entry<String, Schema> entry : document.schemas().entrySet()) {
+      if (reachableSchemas != null && !reachableSchemas.contains(entry.getKey())) {
+        continue;
+      }
       schemaToField(entry.getValue(), true, "readSchema()");
     }
-    for (Message message : protoFile.getMessages().values()) {
-      resolveReferences(message);
-    }
+    ReferenceResolver.resolveReferences(protoFile.getMessages());
     schemaRead = true;
   }
 
-  private void resolveReferences(Message message) {
-    for (Field field : message.getFields()) {
-      Message valueType = field.getValueType();
-      if (valueType.isRef()) { // replace the field object with a link to the message it references
-        field.setValueType(protoFile.getMessages().get(valueType.getName()));
-      } else {
-        resolveReferences(valueType);
+  // The names of the schemas to convert when pruning unreachable messages.
+  private Set<String> reachableSchemas(Document document) {
+    SchemaDependencyGraph graph = document.dependencyGraph();
+    Set<String> roots = new LinkedHashSet<>();
+    for (Map.Entry<String, List<Method>> entry : document.resources().entrySet()) {
+      if (serviceIgnoreSet.contains(Name.anyCamel(entry.getKey()).toUpperCamel())) {
+        continue;
+      }
+      for (Method method : entry.getValue()) {
+        roots.addAll(SchemaDependencyGraph.references(method));
+      }
+    }
+    for (String schemaName : config.getInlineFieldSchemaNames()) {
+      if (graph.contains(schemaName)) {
+        roots.add(schemaName);
       }
     }
+    for (Map.Entry<String, Schema> entry : document.schemas().entrySet()) {
+      // Top-level schemas are converted to messages named after their identifiers.
+      if (messageKeepSet.contains(getMessageName(entry.getValue(), null))) {
+        roots.add(entry.getKey());
+      }
+    }
+    return graph.reachableFrom(roots);
   }
 
-  private boolean checkForAllowedAnyFields(Message message) {
-    return checkForAllowedAnyFields(message, message.getName());
-  }
+  // Checks the messages reachable from the given message for google.protobuf.Any fields, throwing
+  // an exception if any of them is not under "*.error.details". Whether an Any field is allowed
+  // depends only on the name of the field through which its message was reached, so each message
+  // needs to be checked at most twice (reached through an "error" field or not) across all the
+  // calls sharing the same visited sets; this also makes recursive messages safe to check.
+  // Returns whether an allowed Any field was found in a message not visited before.
+  private boolean checkForAllowedAnyFields(Message message, AnyFieldsVisited visited) {
+    // The messages are checked depth-first, in the order of their fields, with an explicit stack
+    // rather than recursion so that deeply nested messages cannot overflow the thread stack.
+    Deque<AnyFieldsFrame> stack = new ArrayDeque<>();
+    AnyFieldsFrame root = new AnyFieldsFrame(message, null, message.getName());
+    if (visited.add(message, false)) {
+      stack.push(root);
+    }
 
-  private boolean checkForAllowedAnyFields(Message message, String previousFieldPath) {
-    // We want to recursively check every child so we don't short-circuit when haveAny becomes
-    // true, as we rely on the side effect (exception) to signal a google.protobuf.Any in an
-    // unsupported location.
+    // We want to check every field so we don't stop when haveAny becomes true, as we rely on the
+    // side effect (exception) to signal a google.protobuf.Any in an unsupported location.
     boolean haveAny = false;
-    for (Field field : message.getFields()) {
+    String anyName = Message.PRIMITIVES.get("google.protobuf.Any").getName();
+    while (!stack.isEmpty()) {
+      AnyFieldsFrame frame = stack.peek();
+      if (!frame.fields.hasNext()) {
+        stack.pop();
+        continue;
+      }
+      Field field = frame.fields.next();
       Message valueType = field.getValueType();
-      String currentFieldPath = previousFieldPath + "." + field.getName();
-      if (valueType.getName() == Message.PRIMITIVES.get("google.protobuf.Any").getName()) {
-        if (currentFieldPath.endsWith(".error.details")) {
+      if (valueType.getName() == anyName) {
+        // That is, whether the field path ends with ".error.details".
+        if (frame.underError() && "details".equals(field.getName())) {
           haveAny = true;
           if (trace) {
-            System.err.printf("Found ANY field at %s\n", currentFieldPath);
+            System.err.printf("Found ANY field at %s\n", frame.fieldPath(field));
           }
         } else {
           throw new IllegalArgumentException(
-              "illegal ANY type not under \"*.error.details\": " + currentFieldPath);
+              "illegal ANY type not under \"*.error.details\": " + frame.fieldPath(field));
         }
-      } else {
+      } else if (visited.add(valueType, "error".equals(field.getName()))) {
         // Check for Any fields in this field's children, even if we already determined that its
         // siblings contain Any fields. This allows us to raise an exception if we have an Any in an
         // unsupported location.
-        boolean childrenHaveAny = checkForAllowedAnyFields(field.getValueType(), currentFieldPath);
-        haveAny = childrenHaveAny || haveAny;
+        stack.push(new AnyFieldsFrame(valueType, frame, field.getName()));
       }
     }
     return haveAny;
   }
 
+  // A message being checked by checkForAllowedAnyFields(), along with the field through which it
+  // was reached. The field paths are only built when reported, as they grow with the nesting depth.
+  private static class AnyFieldsFrame {
+    private final AnyFieldsFrame parent;
+    // The name of the field, or of the message checked first if there is no parent.
+    private final String name;
+    private final Iterator<Field> fields;
+
+    private AnyFieldsFrame(Message message, AnyFieldsFrame parent, String name) {
+      this.parent = parent;
+      this.name = name;
+      this.fields = message.getFields().iterator();
+    }
+
+    private boolean underError() {
+      return parent != null && "error".equals(name);
+    }
+
+    private String fieldPath(Field field) {
+      Deque<String> names = new ArrayDeque<>();
+      names.push(field.getName());
+      for (AnyFieldsFrame frame = this; frame != null; frame = frame.parent) {
+        names.push(frame.name);
+      }
+      return String.join(".", names);
+    }
+  }
+
+  // The messages already visited by checkForAllowedAnyFields(), depending on whether they were
+  // reached through a field named "error".
+  private static class AnyFieldsVisited {
+    private final Set<Message> underError = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Message> elsewhere = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Marks the message as visited through a field named "error" or not, returning false if it
+    // already was: either already checked, or being checked further up the current path.
+    private boolean add(Message message, boolean underError) {
+      return (underError ? this.underError : elsewhere).add(message);
+    }
+  }
+
   // Tries to resolve name collisions between an intended service name and already-registered
   // messages. Returns a non-conflicting service name to use, or throws an exception if the
   // collision could not be resolved.
@@ -256,94 +468,87 @@ public class DocumentToProtoConverter {
     return newServiceName;
   }
 
-  // If there is a naming conflict between two or more enums in the same message, convert all
-  // enum types to strings (happens rarely, but happens).
-  private void cleanupEnumNamingConflicts() {
-    Message stringType = Message.PRIMITIVES.get("string");
+  // Makes the single post-conversion sweep over the message registry: cleans up enum naming
+  // conflicts in every message and, if enums are to be converted to strings, collects the
+  // enum-typed fields of every message. The collected fields (keyed by message name) are converted
+  // by convertEnumFieldsToStrings() once the LRO annotations it depends on are in place.
+  private Map<String, SortedSet<Field>> sweepMessages() {
+    Map<String, SortedSet<Field>> enumFieldsByMessage = new LinkedHashMap<>();
     for (Message message : protoFile.getMessages().values()) {
-      int enumFieldsCount = 0;
-      Set<String> enumFieldsNames = new HashSet<>();
-      Set<String> enumNames = new HashSet<>();
-      Set<String> duplicatedEnumFields = new HashSet<>();
-
-      for (Message nestedEnum : message.getEnums()) {
-        for (Field enumField : nestedEnum.getFields()) {
-          if (!enumFieldsNames.add(enumField.getName())) {
-            duplicatedEnumFields.add(enumField.getName());
-          }
-        }
+      cleanupEnumNamingConflicts(message);
+      if (!this.enumsAsStrings) {
+        continue;
       }
-      for (Message nestedEnum : message.getEnums()) {
-        enumNames.add(nestedEnum.getName());
-        // Set<String> removed = new HashSet<>();
-        StringBuilder extraValues = new StringBuilder();
-        nestedEnum
-            .getFields()
-            .removeIf(
-                a -> {
-                  if (duplicatedEnumFields.contains(a.getName())) {
-                    extraValues.append('\n').append(a.getName());
-                    return true;
-                  }
-                  return false;
-                });
-
-        if (extraValues.length() > 0) {
-          nestedEnum.appendDescription(
-              "\nAdditional supported values which may be not listed in the enum directly due"
-                  + " to technical reasons:"
-                  + extraValues);
+      SortedSet<Field> enumFields = new TreeSet<>();
+      for (Field field : message.getFields()) {
+        if (field.getValueType().isEnum()) {
+          enumFields.add(field);
         }
       }
-
-      if (enumFieldsCount > enumFieldsNames.size()) {
-        message.getEnums().clear();
-        SortedSet<Field> newFields = new TreeSet<>();
-        for (Field f : message.getFields()) {
-          if (enumNames.contains(f.getValueType().getName())) {
-            String desc = sanitizeDescr(f.getDescription());
-            newFields.add(
-                new Field(
-                    f.getName(),
-                    stringType,
-                    f.isRepeated(),
-                    f.isOptional(),
-                    f.getKeyType(),
-                    desc,
-                    f.isFirstInOrder()));
-          } else {
-            newFields.add(f);
-          }
-        }
-
-        message.getFields().clear();
-        message.getFields().addAll(newFields);
+      if (!enumFields.isEmpty()) {
+        enumFieldsByMessage.put(message.getName(), enumFields);
       }
     }
+    return enumFieldsByMessage;
   }
 
-  private void convertEnumFieldsToStrings() {
-    if (!this.enumsAsStrings) {
+  // If there is a naming conflict between values of two or more enums in the same message, remove
+  // the conflicting values from the enums and list them in the enum descriptions instead (happens
+  // rarely, but happens).
+  private void cleanupEnumNamingConflicts(Message message) {
+    if (message.getEnums().isEmpty()) {
       return;
     }
 
-    Message stringType = Message.PRIMITIVES.get("string");
-    for (Message message : protoFile.getMessages().values()) {
-      SortedSet<Field> enumFields = new TreeSet<>();
-      for (Field field : message.getFields()) {
-        // Enums declared in Operation must remain intact
-        if (field
-            .getOptions()
-            .stream()
-            .anyMatch(a -> "google.cloud.operation_field".equals(a.getName()))) {
-          enumFields.clear();
-          break;
-        }
-        if (field.getValueType().isEnum()) {
-          enumFields.add(field);
+    Set<String> enumFieldsNames = new HashSet<>();
+    Set<String> duplicatedEnumFields = new HashSet<>();
+    for (Message nestedEnum : message.getEnums()) {
+      for (Field enumField : nestedEnum.getFields()) {
+        if (!enumFieldsNames.add(enumField.getName())) {
+          duplicatedEnumFields.add(enumField.getName());
         }
       }
+    }
+    if (duplicatedEnumFields.isEmpty()) {
+      return;
+    }
+
+    for (Message nestedEnum : message.getEnums()) {
+      StringBuilder extraValues = new StringBuilder();
+      nestedEnum
+          .getFields()
+          .removeIf(
+              a -> {
+                if (duplicatedEnumFields.contains(a.getName())) {
+                  extraValues.append('\n').append(a.getName());
+                  return true;
+                }
+                return false;
+              });
+
+      if (extraValues.length() > 0) {
+        nestedEnum.appendDescription(
+            "\nAdditional supported values which may be not listed in the enum directly due"
+                + " to technical reasons:"
+                + extraValues);
+      }
+    }
+  }
 
+  private void convertEnumFieldsToStrings(Map<String, SortedSet<Field>> enumFieldsByMessage) {
+    Message stringType = Message.PRIMITIVES.get("string");
+    for (Map.Entry<String, SortedSet<Field>> entry : enumFieldsByMessage.entrySet()) {
+      Message message = protoFile.getMessages().get(entry.getKey());
+      // Enums declared in Operation must remain intact
+      if (message
+          .getFields()
+          .stream()
+          .flatMap(f -> f.getOptions().stream())
+          .anyMatch(a -> "google.cloud.operation_field".equals(a.getName()))) {
+        continue;
+      }
+
+      SortedSet<Field> enumFields = entry.getValue();
       message.getFields().removeAll(enumFields);
       for (Field f : enumFields) {
         String desc =
@@ -368,6 +573,10 @@ public class DocumentToProtoConverter {
 
   private boolean checkAnyFields() {
     boolean haveAny = false;
+    // Shared messages (e.g. Operation) are only checked once across all the methods. Since every
+    // message is fully checked on its first visit, the first illegal Any field is reported at the
+    // same path as it would be without skipping the already checked messages.
+    AnyFieldsVisited visited = new AnyFieldsVisited();
     // Note that we only check for Any fields for messages rooted in requests and responses. We
     // don't want to initiate the check in sub-messages that will be included in those, because then
     // the path to the Any field may incorrectly fail to match where it's actually included and
@@ -378,8 +587,8 @@ public class DocumentToProtoConverter {
 
         // TODO: Decide whether should we disallow error.details.Any on inputs. The only use case
         // would seem to be somehow echoing the error message back to the server?
-        boolean inInput = checkForAllowedAnyFields(method.getInput());
-        boolean inOutput = checkForAllowedAnyFields(method.getOutput());
+        boolean inInput = checkForAllowedAnyFields(method.getInput(), visited);
+        boolean inOutput = checkForAllowedAnyFields(method.getOutput(), visited);
         haveAny = haveAny || inInput || inOutput;
       }
     }
@@ -501,6 +710,18 @@ public class DocumentToProtoConverter {
     // 3. Set `operation_request_field` and `operation_service` annotation. Find the LRO methods
     // (the ones which start Operation within the API).
     //
+    // Index the polling message fields by name and type, so that the candidate polling fields for
+    // each initiating message field are found with a single lookup instead of probing every
+    // polling service.
+    Map<LroFieldKey, List<Map.Entry<String, Field>>> pollingFieldsIndex = new HashMap<>();
+    for (Map.Entry<String, Map<String, Field>> entry : pollingServiceMessageFieldsMap.entrySet()) {
+      for (Field pollingMessageField : entry.getValue().values()) {
+        pollingFieldsIndex
+            .computeIfAbsent(new LroFieldKey(pollingMessageField), k -> new ArrayList<>())
+            .add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), pollingMessageField));
+      }
+    }
+
     for (GrpcService service : protoFile.getServices().values()) {
       for (GrpcMethod method : service.getMethods()) {
         if (!operation.equals(method.getOutput())) {
@@ -524,20 +745,36 @@ public class DocumentToProtoConverter {
         // Find the LRO polling message with the most intersecting fields with the LRO initiating
         // message. The "winner" will determine which polling service should be used for this
         // LRO initiating method.
+        LroMatchingEvent event = new LroMatchingEvent();
+        event.begin();
         List<Field[]> matchingFieldPairsCandidate = null;
         String pollingServiceCandidate = null;
         int matchingFieldPairsMax = 0;
 
+        Map<String, List<Field[]>> matchingFieldPairsByService = new HashMap<>();
+        for (Field initiatingMessageField : method.getInput().getFieldsWithNumbers().values()) {
+          List<Map.Entry<String, Field>> pollingCandidates =
+              pollingFieldsIndex.get(new LroFieldKey(initiatingMessageField));
+          if (pollingCandidates == null) {
+            continue;
+          }
+          for (Map.Entry<String, Field> pollingCandidate : pollingCandidates) {
+            Field pollingMessageField = pollingCandidate.getValue();
+            if (pollingMessageField.equals(initiatingMessageField)) {
+              matchingFieldPairsByService
+                  .computeIfAbsent(pollingCandidate.getKey(), k -> new ArrayList<>())
+                  .add(new Field[] {initiatingMessageField, pollingMessageField});
+            }
+          }
+        }
+
+        // Polling services are still visited in the same order as before, so ties are resolved
+        // the same way.
         for (Map.Entry<String, Map<String, Field>> entry :
             pollingServiceMessageFieldsMap.entrySet()) {
-          List<Field[]> matchingFieldPairs = new ArrayList<>();
+          List<Field[]> matchingFieldPairs =
+              matchingFieldPairsByService.getOrDefault(entry.getKey(), Collections.emptyList());
           Map<String, Field> pollingMessageFields = entry.getValue();
-          for (Field initiatingMessageField : method.getInput().getFieldsWithNumbers().values()) {
-            Field pollingMessageField = pollingMessageFields.get(initiatingMessageField.getName());
-            if (pollingMessageField != null && pollingMessageField.equals(initiatingMessageField)) {
-              matchingFieldPairs.add(new Field[] {initiatingMessageField, pollingMessageField});
-            }
-          }
 
           matchingFieldPairsMax = Math.max(matchingFieldPairsMax, matchingFieldPairs.size());
           if (matchingFieldPairs.size() < pollingMessageFields.size()) {
@@ -561,6 +798,12 @@ public class DocumentToProtoConverter {
                 method.getName() + " has no matching polling service");
           }
         }
+        if (event.shouldCommit()) {
+          event.methodName = method.getName();
+          event.pollingService = pollingServiceCandidate;
+          event.matchedFields = matchingFieldPairsCandidate.size();
+          event.commit();
+        }
 
         method
             .getOptions()
@@ -576,45 +819,138 @@ public class DocumentToProtoConverter {
     return true;
   }
 
+  // The name and type of a field, by which the LRO polling message fields are indexed. Fields which
+  // can possibly be equal (see Field.equals()) always have equal keys.
+  private static class LroFieldKey {
+    private final String name;
+    private final boolean repeated;
+    private final String keyTypeName;
+    private final String valueTypeName;
+
+    private LroFieldKey(Field field) {
+      this.name = field.getName();
+      this.repeated = field.isRepeated();
+      this.keyTypeName = field.getKeyType() == null ? null : field.getKeyType().getName();
+      this.valueTypeName = field.getValueType() == null ? null : field.getValueType().getName();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      LroFieldKey that = (LroFieldKey) o;
+      return repeated == that.repeated
+          && name.equals(that.name)
+          && Objects.equals(keyTypeName, that.keyTypeName)
+          && Objects.equals(valueTypeName, that.valueTypeName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(name, repeated, keyTypeName, valueTypeName);
+    }
+  }
+
   private Option createOption(String optionName, Object scalarValue) {
     Option option = new Option(optionName);
     option.getProperties().put("", scalarValue);
     return option;
   }
 
+  // Converts a schema to a field, converting and registering the messages of its nested schemas
+  // along the way. The schemas are converted depth-first (each schema's message names are looked
+  // up before its nested schemas', and its message is registered after theirs) using an explicit
+  // stack of frames instead of recursion, so that deeply nested schemas cannot overflow the thread
+  // stack. Each frame only points at its parent, so the schema paths are only built when needed.
   private Field schemaToField(Schema sch, boolean optional, String caller) {
-    List<String> currentSchemaPath = new ArrayList();
-    currentSchemaPath.add(caller);
-    currentSchemaPath.add("schemas");
-    return schemaToField(sch, optional, currentSchemaPath);
+    boolean recordEvents = new SchemaConversionEvent().isEnabled();
+    Deque<SchemaFrame> stack = new ArrayDeque<>();
+    stack.push(enterSchema(sch, optional, caller, null, recordEvents));
+    Field result = null;
+    while (!stack.isEmpty()) {
+      SchemaFrame frame = stack.peek();
+      if (result != null) {
+        acceptNestedField(frame, result);
+        result = null;
+      }
+      Schema nested = nextNestedSchema(frame);
+      if (nested != null) {
+        stack.push(enterSchema(nested, true, caller, frame, recordEvents));
+        continue;
+      }
+      stack.pop();
+      result = exitSchema(frame);
+    }
+    return result;
   }
 
-  private Field schemaToField(Schema sch, boolean optional, List<String> previousSchemaPath) {
-    assert previousSchemaPath.size() > 0; // we should at least have the caller
+  // The state of the conversion of one schema.
+  private static class SchemaFrame {
+    private final Schema schema;
+    private final boolean optional;
+    private final String caller;
+    private final SchemaFrame parent;
+    private final int depth;
+    private SchemaConversionEvent event;
+    private String name;
+    private Message valueType;
+    private boolean repeated;
+    private Message keyType;
+    // Null until the array items or the map values of a repeated field have been converted.
+    private Field field;
+    // Null for fields of primitive types, which have no nested messages.
+    private Iterator<Schema> properties;
+
+    private SchemaFrame(Schema schema, boolean optional, String caller, SchemaFrame parent) {
+      this.schema = schema;
+      this.optional = optional;
+      this.caller = caller;
+      this.parent = parent;
+      this.depth = parent == null ? 0 : parent.depth + 1;
+    }
 
-    String schemaName = sch.key();
-    String name = Name.anyCamel(schemaName).toCapitalizedLowerUnderscore();
+    // The path to the schema, starting with the caller if requested (e.g.
+    // "readSchema().schemas.Instance.disks").
+    private String path(boolean withCaller) {
+      String[] keys = new String[depth + 1];
+      for (SchemaFrame frame = this; frame != null; frame = frame.parent) {
+        keys[frame.depth] = frame.schema.key();
+      }
+      StringBuilder path = new StringBuilder();
+      if (withCaller) {
+        path.append(caller).append('.');
+      }
+      path.append("schemas");
+      for (String key : keys) {
+        path.append('.').append(key);
+      }
+      return path.toString();
+    }
+  }
+
+  // Starts the conversion of a schema, determining the type of its field.
+  private SchemaFrame enterSchema(
+      Schema sch, boolean optional, String caller, SchemaFrame parent, boolean recordEvents) {
+    SchemaFrame frame = new SchemaFrame(sch, optional, caller, parent);
+    if (recordEvents) {
+      frame.event = new SchemaConversionEvent();
+      frame.event.begin();
+    }
+    frame.name = toFieldName(sch.key());
     String description = sch.description();
     Message valueType = null;
-    boolean repeated = false;
-    Message keyType = null;
-
-    List<String> currentSchemaPath = new ArrayList(previousSchemaPath);
-    boolean atTopLevel = currentSchemaPath.size() == 2; //  we only have the caller + "schemas"
-    currentSchemaPath.add(schemaName);
-    String currentSchemaPathString = String.join(".", currentSchemaPath);
 
     // In order to record the proto type names corresponding to inline schemas, and to apply
     // configured name overrides, we need the path to the schema without the caller. We only apply
     // the name overrides to inline schemas, so we don't need to stringify the path otherwise.
-    String inlineSchemaPathString = null;
-    if (!atTopLevel) {
-      inlineSchemaPathString =
-          String.join(".", currentSchemaPath.subList(1, currentSchemaPath.size()));
-    }
+    String inlineSchemaPathString = parent == null ? null : frame.path(false);
 
     if (trace) {
-      System.err.printf("*** schemaToField: %s\n", currentSchemaPathString);
+      System.err.printf("*** schemaToField: %s\n", frame.path(true));
     }
 
     switch (sch.type()) {
@@ -633,7 +969,7 @@ public class DocumentToProtoConverter {
             throw new IllegalStateException(
                 String.format(
                     "unexpected 'format' value (%s:'%s') when processing ANY type in schema %s",
-                    sch.format().name(), sch.format().toString(), currentSchemaPathString));
+                    sch.format().name(), sch.format().toString(), frame.path(true)));
         }
         break;
       case ARRAY:
@@ -646,7 +982,7 @@ public class DocumentToProtoConverter {
           // as an opaque `google.protobuf.ListValue` (which has the`repeated` semantics embedded
           // internally), we should not make this field `repeated`.
         } else {
-          repeated = true;
+          frame.repeated = true;
         }
         break;
       case BOOLEAN:
@@ -682,7 +1018,7 @@ public class DocumentToProtoConverter {
             throw new IllegalStateException(
                 String.format(
                     "unexpected 'format' value ('%s') when processing INTEGER type in schema %s",
-                    sch.format().toString(), currentSchemaPathString));
+                    sch.format().toString(), frame.path(true)));
         }
         break;
       case NUMBER:
@@ -699,7 +1035,7 @@ public class DocumentToProtoConverter {
             throw new IllegalStateException(
                 String.format(
                     "unexpected 'format' value ('%s') when processing NUMBER type in schema %s",
-                    sch.format().toString(), currentSchemaPathString));
+                    sch.format().toString(), frame.path(true)));
         }
         break;
       case OBJECT:
@@ -715,8 +1051,9 @@ public class DocumentToProtoConverter {
             break;
           case EMPTY:
             if (sch.additionalProperties() != null) {
-              repeated = true;
-              keyType = Message.PRIMITIVES.get("string"); // schema corresponds to map<String, ...>
+              frame.repeated = true;
+              // schema corresponds to map<String, ...>
+              frame.keyType = Message.PRIMITIVES.get("string");
             } else {
               valueType =
                   new Message(
@@ -730,7 +1067,7 @@ public class DocumentToProtoConverter {
             throw new IllegalStateException(
                 String.format(
                     "unexpected 'format' value (%s:'%s') when processing OBJECT type in schema %s",
-                    sch.format().name(), sch.format().toString(), currentSchemaPathString));
+                    sch.format().name(), sch.format().toString(), frame.path(true)));
         }
         break;
       case STRING:
@@ -771,40 +1108,87 @@ public class DocumentToProtoConverter {
               throw new IllegalStateException(
                   String.format(
                       "unexpected 'format' value ('%s') when processing STRING type in schema %s",
-                      sch.format().toString(), currentSchemaPathString));
+                      sch.format().toString(), frame.path(true)));
           }
         }
         break;
     }
 
-    if (repeated) {
-      Field subField =
-          schemaToField(
-              keyType == null ? sch.items() /* array */ : sch.additionalProperties() /* map */,
-              true,
-              currentSchemaPath);
-      valueType = subField.getValueType();
+    // The field of a repeated schema is only created once its items (or values) are converted.
+    if (!frame.repeated) {
+      frame.valueType = valueType;
+      createField(frame);
     }
+    return frame;
+  }
 
-    Field field =
-        new Field(name, valueType, repeated, optional, keyType, sanitizeDescr(description), false);
-    if (sch.type() == Schema.Type.EMPTY) {
-    } else if (Message.PRIMITIVES.containsKey(valueType.getName())) {
-      return field;
+  private void createField(SchemaFrame frame) {
+    Schema sch = frame.schema;
+    frame.field =
+        new Field(
+            frame.name,
+            frame.valueType,
+            frame.repeated,
+            frame.optional,
+            frame.keyType,
+            sanitizeDescr(sch.description()),
+            false);
+    if (sch.type() == Schema.Type.EMPTY
+        || !Message.PRIMITIVES.containsKey(frame.valueType.getName())) {
+      frame.properties = sch.properties().values().iterator();
     }
+  }
 
-    // Recurse for nested messages
-    for (Map.Entry<String, Schema> entry : sch.properties().entrySet()) {
-      Field valueTypeField = schemaToField(entry.getValue(), true, currentSchemaPath);
-      valueType.getFields().add(valueTypeField);
-      if (valueTypeField.getValueType().isEnum()) {
-        valueType.getEnums().add(valueTypeField.getValueType());
+  // Returns the next nested schema to convert, or null if all have been converted.
+  private Schema nextNestedSchema(SchemaFrame frame) {
+    Schema sch = frame.schema;
+    if (frame.field == null) {
+      Schema items =
+          frame.keyType == null ? sch.items() /* array */ : sch.additionalProperties() /* map */;
+      if (items == null) {
+        throw new IllegalStateException(
+            String.format("missing 'items' of ARRAY type in schema %s", frame.path(true)));
       }
+      return items;
+    }
+    if (frame.properties != null && frame.properties.hasNext()) {
+      return frame.properties.next();
+    }
+    return null;
+  }
+
+  private void acceptNestedField(SchemaFrame frame, Field nestedField) {
+    if (frame.field == null) {
+      // The items (or values) of a repeated field.
+      frame.valueType = nestedField.getValueType();
+      createField(frame);
+      return;
+    }
+    frame.valueType.getFields().add(nestedField);
+    if (nestedField.getValueType().isEnum()) {
+      frame.valueType.getEnums().add(nestedField.getValueType());
     }
+  }
 
+  // Completes the conversion of a schema once its nested schemas are converted, registering its
+  // message.
+  private Field exitSchema(SchemaFrame frame) {
+    if (frame.properties != null) {
+      registerMessage(frame);
+    }
+    if (frame.event != null && frame.event.shouldCommit()) {
+      frame.event.schemaPath = frame.path(true);
+      frame.event.depth = frame.depth;
+      frame.event.commit();
+    }
+    return frame.field;
+  }
+
+  private void registerMessage(SchemaFrame frame) {
+    Message valueType = frame.valueType;
     if (valueType.isEnum()) {
       // Enums are always nested
-      return field;
+      return;
     }
 
     Message existingMessage = protoFile.getMessages().get(valueType.getName());
@@ -818,12 +1202,31 @@ public class DocumentToProtoConverter {
           && valueType.getDescription().length() < existingMessage.getDescription().length()) {
         putAllMessages(valueType.getName(), valueType);
       }
-      if (!valueType.equals(existingMessage)) {
+      MessageCollisionCheckEvent event = new MessageCollisionCheckEvent();
+      event.begin();
+      boolean collision = !valueType.equals(existingMessage);
+      if (event.shouldCommit()) {
+        event.messageName = valueType.getName();
+        event.schemaPath = frame.path(true);
+        event.collision = collision;
+        event.commit();
+      }
+      if (collision) {
         throw new MessageCollisionException(
-            existingMessage.toString(), valueType.toString(), currentSchemaPathString);
+            existingMessage.toString(), valueType.toString(), frame.path(true));
       }
     }
-    return field;
+  }
+
+  private String toFieldName(String schemaName) {
+    NameConversionEvent event = new NameConversionEvent();
+    event.begin();
+    String name = Name.anyCamel(schemaName).toCapitalizedLowerUnderscore();
+    if (event.shouldCommit()) {
+      event.name = schemaName;
+      event.commit();
+    }
+    return name;
   }
 
   private Message constructEnumMessage(
@@ -1126,14 +1529,13 @@ public class DocumentToProtoConverter {
       return description;
     }
 
-    // It is an inefficient way of doing it, but it does not really matter for all possible
-    // practical applications of this converter app.
-    Matcher m = RELATIVE_LINK.matcher(description);
-    String sanitizedDescription = description;
-    while (m.find()) {
-      sanitizedDescription = m.replaceFirst(m.group("linkName") + "(" + relativeLinkPrefix + "/");
-      m = RELATIVE_LINK.matcher(sanitizedDescription);
-    }
+    // A single pass over the description: rescanning it from the start after each replacement
+    // made long descriptions with many links quadratic (and looped forever on prefixes starting
+    // with "/", which the rescan matched again).
+    String sanitizedDescription =
+        RELATIVE_LINK
+            .matcher(description)
+            .replaceAll("${linkName}(" + Matcher.quoteReplacement(relativeLinkPrefix + "/"));
 
     return sanitizedDescription.replace(
         "{$api_version}", protoFile.getMetadata().getProtoPkgVersion());
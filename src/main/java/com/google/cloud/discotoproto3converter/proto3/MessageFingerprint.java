@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+// Computes a structural fingerprint of a message: a 128-bit hash over its name, kind, fields (name,
+// ordering, cardinality, value and key type names, options) and nested enums. Referenced message
+// types contribute only their names, which keeps the computation linear in the size of the message
+// itself and well-defined for recursive messages.
+//
+// Two messages with equal fingerprints are structurally identical for the purposes of merging and
+// rendering; descriptions are only taken into account if explicitly requested.
+public class MessageFingerprint {
+  private MessageFingerprint() {}
+
+  public static String of(Message message, boolean includeDescriptions) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    putMessage(hasher, message, includeDescriptions);
+    return hasher.hash().toString();
+  }
+
+  private static void putMessage(Hasher hasher, Message message, boolean includeDescriptions) {
+    putString(hasher, message.getName());
+    hasher.putBoolean(message.isEnum()).putBoolean(message.isRef());
+    if (includeDescriptions) {
+      putString(hasher, message.getDescription());
+    }
+
+    hasher.putInt(message.getEnums().size());
+    for (Message nestedEnum : message.getEnums()) {
+      putMessage(hasher, nestedEnum, includeDescriptions);
+    }
+
+    hasher.putInt(message.getFields().size());
+    for (Field field : message.getFields()) {
+      putString(hasher, field.getName());
+      hasher
+          .putBoolean(field.isFirstInOrder())
+          .putBoolean(field.isRepeated())
+          .putBoolean(field.isOptional());
+      putString(hasher, field.getValueType() == null ? null : field.getValueType().getName());
+      putString(hasher, field.getKeyType() == null ? null : field.getKeyType().getName());
+      if (includeDescriptions) {
+        putString(hasher, field.getDescription());
+      }
+      putOptions(hasher, field.getOptions());
+    }
+  }
+
+  private static void putOptions(Hasher hasher, List<Option> options) {
+    hasher.putInt(options.size());
+    for (Option option : options) {
+      putString(hasher, option.getName());
+      hasher.putInt(option.getProperties().size());
+      for (Map.Entry<String, Object> prop : option.getProperties().entrySet()) {
+        putString(hasher, prop.getKey());
+        Object value = prop.getValue();
+        // The value class is part of the fingerprint, since it determines how the value is printed
+        // (e.g. quoted string vs. enum constant).
+        putString(hasher, value == null ? null : value.getClass().getName());
+        putString(hasher, value == null ? null : value.toString());
+      }
+    }
+  }
+
+  // Strings are length-prefixed so that adjacent values cannot be confused with each other, and
+  // null is distinguished from the empty string.
+  private static void putString(Hasher hasher, String value) {
+    if (value == null) {
+      hasher.putInt(-1);
+      return;
+    }
+    hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+  }
+}
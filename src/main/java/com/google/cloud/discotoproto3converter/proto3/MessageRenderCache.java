@@ -0,0 +1,228 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A persistent on-disk cache of the text {@link Proto3Writer} renders for top-level messages.
+ *
+ * <p>Most messages are unchanged between consecutive revisions of a Discovery document, so
+ * rendering them again (numbering their fields, formatting their descriptions and options) is
+ * wasted work. This cache maps the {@link MessageFingerprint} of a message (with its descriptions,
+ * which are part of the text) and the writer options to the rendered text, so that writing a proto
+ * file mostly reassembles cached blocks, and only changed messages are rendered again. The output
+ * is the same with or without the cache.
+ *
+ * <p>The cache is a single file, tagged with {@link #RENDERER_TAG}, which is derived from {@link
+ * #FORMAT_VERSION} and the bytecode of the classes rendering messages, so that the text rendered by
+ * a different build is never reused. The file ends with a checksum of its entries; a file with a
+ * different tag or checksum is ignored and overwritten. Saving keeps the entries used since the
+ * cache was loaded first, in the order they were used, then the other loaded entries, as long as
+ * their total size stays within the size limit.
+ */
+public class MessageRenderCache {
+  // Bump this whenever the cache file layout changes.
+  static final int FORMAT_VERSION = 1;
+
+  static final String RENDERER_TAG = computeRendererTag();
+
+  public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+  static final String CACHE_FILE_NAME = "messages.rendercache";
+
+  private static final int MAGIC = 0x44504d52; // "DPMR"
+
+  private final Path cacheFile;
+  private final long maxBytes;
+  // The entries used since the cache was loaded, in the order they were first used.
+  private final Map<String, String> usedEntries = new LinkedHashMap<>();
+  // The loaded entries not used (yet).
+  private final Map<String, String> otherEntries;
+  private int hits;
+  private int misses;
+
+  private MessageRenderCache(Path cacheFile, long maxBytes, Map<String, String> entries) {
+    this.cacheFile = cacheFile;
+    this.maxBytes = maxBytes;
+    this.otherEntries = entries;
+  }
+
+  /**
+   * Loads the cache stored in the given directory, or returns an empty cache if there is no valid
+   * cache file there. {@link #save()} writes at most {@code maxBytes} bytes of rendered text.
+   */
+  public static MessageRenderCache load(Path cacheDir, long maxBytes) {
+    Path cacheFile = cacheDir.resolve(CACHE_FILE_NAME);
+    Map<String, String> entries = new LinkedHashMap<>();
+    if (Files.isRegularFile(cacheFile)) {
+      try (InputStream is = new BufferedInputStream(Files.newInputStream(cacheFile))) {
+        entries = read(is);
+      } catch (IOException | RuntimeException e) {
+        System.err.printf("*** ignoring unreadable message render cache %s: %s\n", cacheFile, e);
+      }
+    }
+    return new MessageRenderCache(cacheFile, maxBytes, entries);
+  }
+
+  /** The key of the text rendered for the given top-level message. */
+  static String key(Message message, boolean outputComments) {
+    return MessageFingerprint.of(message, outputComments) + (outputComments ? "+c" : "-c");
+  }
+
+  /** Returns the cached text for the given key, or null. */
+  String get(String key) {
+    String text = usedEntries.get(key);
+    if (text == null) {
+      text = otherEntries.remove(key);
+      if (text != null) {
+        usedEntries.put(key, text);
+      }
+    }
+    if (text == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return text;
+  }
+
+  void put(String key, String text) {
+    otherEntries.remove(key);
+    usedEntries.put(key, text);
+  }
+
+  public int getHits() {
+    return hits;
+  }
+
+  public int getMisses() {
+    return misses;
+  }
+
+  /** Writes the cache file, replacing the previous one atomically. */
+  public void save() throws IOException {
+    Path cacheDir = cacheFile.toAbsolutePath().getParent();
+    Files.createDirectories(cacheDir);
+    // Write to a temporary file first, so that concurrent runs never observe a partial cache.
+    Path tmpPath = Files.createTempFile(cacheDir, "rendercache", ".tmp");
+    try {
+      try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmpPath))) {
+        write(os, keptEntries());
+      }
+      Files.move(tmpPath, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmpPath);
+    }
+  }
+
+  // The entries to save: the used ones first, then the others, up to the size limit.
+  private Map<String, String> keptEntries() {
+    Map<String, String> entries = new LinkedHashMap<>();
+    long size = 0;
+    for (Map<String, String> group : Arrays.asList(usedEntries, otherEntries)) {
+      for (Map.Entry<String, String> entry : group.entrySet()) {
+        // The rendered text is mostly ASCII, so its length approximates its encoded size.
+        size += entry.getKey().length() + entry.getValue().length();
+        if (size > maxBytes) {
+          return entries;
+        }
+        entries.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return entries;
+  }
+
+  static void write(OutputStream os, Map<String, String> entries) throws IOException {
+    DataOutputStream out = new DataOutputStream(os);
+    Hasher checksum = Hashing.murmur3_128().newHasher();
+    out.writeInt(MAGIC);
+    out.writeUTF(RENDERER_TAG);
+    out.writeInt(entries.size());
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      byte[] text = entry.getValue().getBytes(StandardCharsets.UTF_8);
+      out.writeUTF(entry.getKey());
+      out.writeInt(text.length);
+      out.write(text);
+      checksum.putString(entry.getKey(), StandardCharsets.UTF_8).putInt(text.length).putBytes(text);
+    }
+    out.writeUTF(checksum.hash().toString());
+    out.flush();
+  }
+
+  static Map<String, String> read(InputStream is) throws IOException {
+    DataInputStream in = new DataInputStream(is);
+    if (in.readInt() != MAGIC || !RENDERER_TAG.equals(in.readUTF())) {
+      throw new IOException("not a message render cache of the current version");
+    }
+    Hasher checksum = Hashing.murmur3_128().newHasher();
+    Map<String, String> entries = new LinkedHashMap<>();
+    int entryCount = in.readInt();
+    for (int i = 0; i < entryCount; i++) {
+      String key = in.readUTF();
+      byte[] text = new byte[in.readInt()];
+      in.readFully(text);
+      checksum.putString(key, StandardCharsets.UTF_8).putInt(text.length).putBytes(text);
+      entries.put(key, new String(text, StandardCharsets.UTF_8));
+    }
+    if (!checksum.hash().toString().equals(in.readUTF())) {
+      throw new IOException("checksum mismatch");
+    }
+    return entries;
+  }
+
+  // Derives a tag from the cache format version and the bytecode of the classes which determine
+  // the rendered text of a message, so that any change to them invalidates the cached text.
+  private static String computeRendererTag() {
+    Hasher hasher = Hashing.murmur3_128().newHasher().putInt(FORMAT_VERSION);
+    Class<?>[] rendererClasses = {
+      Proto3Writer.class,
+      MessageFingerprint.class,
+      ProtoElement.class,
+      Message.class,
+      Field.class,
+      Option.class,
+      ProtoOptionValues.class
+    };
+    for (Class<?> rendererClass : rendererClasses) {
+      String resource = rendererClass.getSimpleName() + ".class";
+      try (InputStream is = rendererClass.getResourceAsStream(resource)) {
+        if (is == null) {
+          throw new IllegalStateException("missing class file " + resource);
+        }
+        hasher.putString(resource, StandardCharsets.UTF_8).putBytes(is.readAllBytes());
+      } catch (IOException e) {
+        throw new IllegalStateException("unreadable class file " + resource, e);
+      }
+    }
+    return hasher.hash().toString().substring(0, 16);
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import com.google.common.base.Throwables;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Runs a sequence of conversion passes, each of which declares the resources (parts of the
+// conversion state) it reads and writes.
+//
+// A pass depends on every earlier pass it conflicts with: one writing a resource the pass reads or
+// writes, or reading a resource the pass writes. Passes are only run when their outputs are
+// requested (directly or through the passes depending on them), each pass at most once, and passes
+// which do not depend on each other may run concurrently. When several concurrently running passes
+// fail, the failure of the earliest registered one is reported, which is the same failure as if
+// the passes were run sequentially in registration order.
+class PassManager {
+  private static class Pass {
+    private final String name;
+    private final Set<String> reads;
+    private final Set<String> writes;
+    private final Runnable action;
+    private final List<Pass> dependencies = new ArrayList<>();
+    private boolean done;
+    private PhaseUsage usage;
+
+    private Pass(String name, Set<String> reads, Set<String> writes, Runnable action) {
+      this.name = name;
+      this.reads = reads;
+      this.writes = writes;
+      this.action = action;
+    }
+
+    private boolean dependsOn(Pass earlier) {
+      return !Collections.disjoint(earlier.writes, reads)
+          || !Collections.disjoint(earlier.writes, writes)
+          || !Collections.disjoint(earlier.reads, writes);
+    }
+  }
+
+  private final List<Pass> passes = new ArrayList<>();
+  private final boolean concurrent;
+
+  PassManager(boolean concurrent) {
+    this.concurrent = concurrent;
+  }
+
+  static Set<String> resources(String... names) {
+    return new HashSet<>(Arrays.asList(names));
+  }
+
+  void addPass(String name, Set<String> reads, Set<String> writes, Runnable action) {
+    Pass pass = new Pass(name, reads, writes, action);
+    for (Pass earlier : passes) {
+      if (pass.dependsOn(earlier)) {
+        pass.dependencies.add(earlier);
+      }
+    }
+    passes.add(pass);
+  }
+
+  // Runs the passes (not run yet) which are needed to produce the given resources.
+  void run(Set<String> outputs) {
+    Set<Pass> needed = new HashSet<>();
+    for (int i = passes.size() - 1; i >= 0; i--) {
+      Pass pass = passes.get(i);
+      if (needed.contains(pass) || !Collections.disjoint(pass.writes, outputs)) {
+        needed.add(pass);
+        needed.addAll(pass.dependencies);
+      }
+    }
+
+    List<Pass> pending = new ArrayList<>();
+    for (Pass pass : passes) {
+      if (needed.contains(pass) && !pass.done) {
+        pending.add(pass);
+      }
+    }
+
+    while (!pending.isEmpty()) {
+      // The passes whose dependencies are all done, in registration order.
+      List<Pass> ready = new ArrayList<>();
+      for (Pass pass : pending) {
+        if (pass.dependencies.stream().allMatch(d -> d.done)) {
+          ready.add(pass);
+        }
+      }
+      if (ready.isEmpty()) {
+        // Cannot happen: dependencies always point to earlier passes.
+        throw new IllegalStateException("unsatisfiable pass dependencies");
+      }
+      if (!concurrent) {
+        ready = ready.subList(0, 1);
+      }
+      runAll(ready);
+      pending.removeAll(ready);
+    }
+  }
+
+  private void runAll(List<Pass> ready) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (Pass pass : ready.subList(1, ready.size())) {
+      futures.add(CompletableFuture.runAsync(() -> runPass(pass)));
+    }
+
+    // The other passes are always joined before any failure (including errors) is rethrown, so
+    // that no pass is still running when the conversion fails.
+    Throwable failure = null;
+    try {
+      runPass(ready.get(0));
+    } catch (Throwable t) {
+      failure = t;
+    }
+    for (CompletableFuture<Void> future : futures) {
+      try {
+        future.join();
+      } catch (CompletionException e) {
+        if (failure == null) {
+          failure = e.getCause() != null ? e.getCause() : e;
+        }
+      }
+    }
+    if (failure != null) {
+      Throwables.throwIfUnchecked(failure);
+      throw new IllegalStateException(failure);
+    }
+  }
+
+  // Concurrently running passes run on different threads, so the per-thread usage counters are
+  // attributed to the right pass.
+  private static void runPass(Pass pass) {
+    PhaseUsage start = PhaseUsage.begin();
+    pass.action.run();
+    pass.usage = start.end();
+    pass.done = true;
+  }
+
+  // Returns the resources used by each pass which has been run so far, in registration order.
+  Map<String, PhaseUsage> getUsage() {
+    Map<String, PhaseUsage> usage = new LinkedHashMap<>();
+    for (Pass pass : passes) {
+      if (pass.done) {
+        usage.put(pass.name, pass.usage);
+      }
+    }
+    return usage;
+  }
+
+  // Returns the time spent in each pass which has been run so far, in registration order.
+  Map<String, Long> getTimingsNanos() {
+    Map<String, Long> timings = new LinkedHashMap<>();
+    for (Map.Entry<String, PhaseUsage> entry : getUsage().entrySet()) {
+      timings.put(entry.getKey(), entry.getValue().getWallNanos());
+    }
+    return timings;
+  }
+}
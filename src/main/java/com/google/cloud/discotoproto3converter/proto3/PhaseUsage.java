@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+// The resources used by the current thread during a phase of the conversion: wall time, CPU time
+// and allocated bytes. The CPU time and allocated bytes are -1 if the JVM cannot measure them.
+public class PhaseUsage {
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final long wallNanos;
+  private final long cpuNanos;
+  private final long allocatedBytes;
+
+  private PhaseUsage(long wallNanos, long cpuNanos, long allocatedBytes) {
+    this.wallNanos = wallNanos;
+    this.cpuNanos = cpuNanos;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  // Takes a snapshot of the current thread's usage counters; the usage since then is obtained
+  // with end(), which must be called on the same thread.
+  public static PhaseUsage begin() {
+    return new PhaseUsage(
+        System.nanoTime(), currentThreadCpuNanos(), currentThreadAllocatedBytes());
+  }
+
+  public PhaseUsage end() {
+    long cpu = currentThreadCpuNanos();
+    long allocated = currentThreadAllocatedBytes();
+    return new PhaseUsage(
+        System.nanoTime() - wallNanos,
+        cpu < 0 || cpuNanos < 0 ? -1 : cpu - cpuNanos,
+        allocated < 0 || allocatedBytes < 0 ? -1 : allocated - allocatedBytes);
+  }
+
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  public long getCpuNanos() {
+    return cpuNanos;
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  private static long currentThreadCpuNanos() {
+    if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+      return -1;
+    }
+    return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+  }
+
+  private static long currentThreadAllocatedBytes() {
+    // Allocation counters are only available through the HotSpot-specific extension of the bean.
+    if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+    if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
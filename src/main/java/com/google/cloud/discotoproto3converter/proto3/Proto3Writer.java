@@ -16,10 +16,15 @@
 package com.google.cloud.discotoproto3converter.proto3;
 
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -35,30 +40,70 @@ public class Proto3Writer implements ConverterWriter {
               + "(?<releaseleveltrailing>[a-zA-Z_]\\w*)?)?)"
               + "(\\.\\d+){0,2}$");
 
+  // The imports of every generated file.
+  static final List<String> API_IMPORTS =
+      Arrays.asList(
+          "google/api/annotations.proto",
+          "google/api/client.proto",
+          "google/api/field_behavior.proto",
+          "google/api/resource.proto");
+  static final String EXTENDED_OPERATIONS_IMPORT = "google/cloud/extended_operations.proto";
+  static final String ANY_IMPORT = "google/protobuf/any.proto";
+  static final String STRUCT_IMPORT = "google/protobuf/struct.proto";
+
+  // The cache of the rendered top-level messages, or null.
+  private final MessageRenderCache renderCache;
+
+  public Proto3Writer() {
+    this(null);
+  }
+
+  public Proto3Writer(MessageRenderCache renderCache) {
+    this.renderCache = renderCache;
+  }
+
   @Override
   public void writeToFile(PrintWriter writer, ProtoFile protoFile, boolean outputComments) {
+    writeToFile(
+        writer,
+        protoFile.getMetadata(),
+        getImports(protoFile),
+        protoFile.getMessages().values(),
+        protoFile.getServices().values(),
+        outputComments);
+  }
+
+  // The imports of a single proto file with all the messages and services of protoFile.
+  static Set<String> getImports(ProtoFile protoFile) {
+    Set<String> imports = new TreeSet<>(API_IMPORTS);
+    if (protoFile.isHasLroDefinitions()) {
+      imports.add(EXTENDED_OPERATIONS_IMPORT);
+    }
+    if (protoFile.HasAnyFields()) {
+      imports.add(ANY_IMPORT);
+    }
+    if (protoFile.UsesStructProto()) {
+      imports.add(STRUCT_IMPORT);
+    }
+    return imports;
+  }
 
-    ProtoFileMetadata metadata = protoFile.getMetadata();
+  // Writes a proto file with the given imports (in order), messages and services.
+  void writeToFile(
+      PrintWriter writer,
+      ProtoFileMetadata metadata,
+      Collection<String> imports,
+      Collection<Message> messages,
+      Collection<GrpcService> services,
+      boolean outputComments) {
     writeLicenseAndWarning(writer, metadata);
 
     writer.println("syntax = \"proto3\";\n");
 
     writer.println("package " + metadata.getProtoPkg() + ";\n");
 
-    writer.println("import \"google/api/annotations.proto\";");
-    writer.println("import \"google/api/client.proto\";");
-    writer.println("import \"google/api/field_behavior.proto\";");
-    writer.println("import \"google/api/resource.proto\";");
-
-    if (protoFile.isHasLroDefinitions()) {
-      writer.println("import \"google/cloud/extended_operations.proto\";");
-    }
-
-    if (protoFile.HasAnyFields()) {
-      writer.println("import \"google/protobuf/any.proto\";");
-    }
-    if (protoFile.UsesStructProto()) {
-      writer.println("import \"google/protobuf/struct.proto\";");
+    for (String importPath : imports) {
+      writer.println("import \"" + importPath + "\";");
     }
 
     writer.println();
@@ -73,18 +118,32 @@ public class Proto3Writer implements ConverterWriter {
     writer.println("//");
     writer.println("// Messages");
     writer.println("//");
-    printMessages(protoFile.getMessages().values(), writer, "", outputComments);
+    for (Message message : messages) {
+      printTopLevelMessage(message, writer, outputComments);
+    }
 
     // Services
     writer.println("//");
     writer.println("// Services");
     writer.println("//");
-    printServices(protoFile.getServices().values(), writer, outputComments);
+    printServices(services, writer, outputComments);
   }
 
   // TODO: refactor to use enum for option types
   // TODO: include helper method to build strings for options
   private void printOptions(String pkg, PrintWriter writer) {
+    for (Map.Entry<String, Object> option : getFileOptions(pkg).entrySet()) {
+      Object value = option.getValue();
+      if (value instanceof String) {
+        value = "\"" + ((String) value).replace("\\", "\\\\") + "\"";
+      }
+      writer.println("option " + option.getKey() + " = " + value + ";");
+    }
+    writer.println();
+  }
+
+  // The file options of a proto file of the given package, in the order they are written.
+  Map<String, Object> getFileOptions(String pkg) {
     String[] tokens = pkg.split("\\.");
     List<String> capitalized =
         Arrays.stream(tokens).map(this::capitalize).collect(Collectors.toList());
@@ -94,12 +153,14 @@ public class Proto3Writer implements ConverterWriter {
             .map(this::capitalize)
             .collect(Collectors.toList());
 
-    writer.println("option csharp_namespace = \"" + String.join("", csharpCapitalized) + "\";");
-    writer.println("option go_package = \"" + getGoPackage(pkg) + "\";");
-    writer.println("option java_multiple_files = true;");
-    writer.println("option java_package = \"" + "com." + pkg + "\";");
-    writer.println("option php_namespace = \"" + String.join("\\\\", capitalized) + "\";");
-    writer.println("option ruby_package = \"" + String.join("::", capitalized) + "\";\n");
+    Map<String, Object> options = new LinkedHashMap<>();
+    options.put("csharp_namespace", String.join("", csharpCapitalized));
+    options.put("go_package", getGoPackage(pkg));
+    options.put("java_multiple_files", true);
+    options.put("java_package", "com." + pkg);
+    options.put("php_namespace", String.join("\\", capitalized));
+    options.put("ruby_package", String.join("::", capitalized));
+    return options;
   }
 
   private String getGoPackage(String protoPkg) {
@@ -191,6 +252,25 @@ public class Proto3Writer implements ConverterWriter {
     }
   }
 
+  // Prints a top-level message, reusing its cached text if there is a render cache.
+  private void printTopLevelMessage(Message message, PrintWriter writer, boolean outputComments) {
+    if (renderCache == null) {
+      printMessages(Collections.singletonList(message), writer, "", outputComments);
+      return;
+    }
+    String key = MessageRenderCache.key(message, outputComments);
+    String text = renderCache.get(key);
+    if (text == null) {
+      StringWriter sw = new StringWriter();
+      try (PrintWriter pw = new PrintWriter(sw)) {
+        printMessages(Collections.singletonList(message), pw, "", outputComments);
+      }
+      text = sw.toString();
+      renderCache.put(key, text);
+    }
+    writer.print(text);
+  }
+
   private void printMessages(
       Collection<Message> messages, PrintWriter writer, String indent, boolean outputComments) {
     for (Message message : messages) {
@@ -15,6 +15,7 @@
  */
 package com.google.cloud.discotoproto3converter.proto3;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -25,6 +26,10 @@ public class ProtoFile {
   private boolean hasLroDefinitions;
   private boolean hasAnyFields;
   private boolean usesStructProto;
+  // The MessageFingerprint (without descriptions) of each message by name, computed on first use or
+  // loaded along with the model from a ProtoFileCache snapshot. The messages must not be modified
+  // once the fingerprints are known.
+  private Map<String, String> messageFingerprints;
 
   public ProtoFileMetadata getMetadata() {
     return metadata;
@@ -65,4 +70,19 @@ public class ProtoFile {
   public void setUsesStructProto(boolean usesStructProto) {
     this.usesStructProto = usesStructProto;
   }
+
+  public synchronized Map<String, String> getMessageFingerprints() {
+    if (messageFingerprints == null) {
+      Map<String, String> fingerprints = new HashMap<>();
+      for (Message message : messages.values()) {
+        fingerprints.put(message.getName(), MessageFingerprint.of(message, false));
+      }
+      messageFingerprints = fingerprints;
+    }
+    return messageFingerprints;
+  }
+
+  synchronized void setMessageFingerprints(Map<String, String> messageFingerprints) {
+    this.messageFingerprints = messageFingerprints;
+  }
 }
@@ -0,0 +1,467 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent on-disk cache of parsed proto files.
+ *
+ * <p>Parsing a previously generated proto file with {@link ProtoParser} is regex-heavy and is
+ * repeated on every run that merges with the same previous proto. This cache stores a binary
+ * snapshot of the parsed {@link ProtoFile} model (messages, nested enums, fields with their
+ * options, services and methods with their options, and the {@link MessageFingerprint} of each
+ * message) keyed by the SHA-256 hash of the proto file content, so that later runs can load the
+ * model instead of re-parsing it.
+ *
+ * <p>Snapshots are tagged with {@link #MODEL_TAG}, which is derived from {@link #FORMAT_VERSION}
+ * and the bytecode of the parser, the model and fingerprint classes and this class, so snapshots
+ * written by a build which parses, models or stores proto files differently are never loaded.
+ * Unreadable snapshots are ignored and overwritten.
+ */
+public class ProtoFileCache {
+  // Bump this whenever the snapshot layout changes.
+  static final int FORMAT_VERSION = 3;
+
+  static final String MODEL_TAG = computeModelTag();
+
+  private static final int MAGIC = 0x44505043; // "DPPC"
+  private static final String SNAPSHOT_SUFFIX = ".protomodel";
+
+  // Type reference kinds
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_PRIMITIVE = 1;
+  private static final byte TYPE_MESSAGE = 2;
+  private static final byte TYPE_NESTED = 3;
+
+  // Option value kinds
+  private static final byte VALUE_STRING = 0;
+  private static final byte VALUE_BOOLEAN = 1;
+  private static final byte VALUE_OPTION = 2;
+
+  private final Path cacheDir;
+
+  public ProtoFileCache(Path cacheDir) {
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * Returns the model for the given proto file content, loading it from the cache if a valid
+   * snapshot exists, or parsing it (and storing a snapshot for subsequent runs) otherwise.
+   */
+  public ProtoFile getOrParse(String content) throws IOException {
+    Path snapshotPath = cacheDir.resolve(snapshotKey(content) + SNAPSHOT_SUFFIX);
+    if (Files.isRegularFile(snapshotPath)) {
+      try (InputStream is = new BufferedInputStream(Files.newInputStream(snapshotPath))) {
+        return read(is);
+      } catch (IOException | RuntimeException e) {
+        // Corrupted or otherwise unusable snapshot: fall back to parsing and overwrite it.
+        System.err.printf("*** ignoring unreadable proto model snapshot %s: %s\n", snapshotPath, e);
+      }
+    }
+
+    ProtoFile protoFile = new ProtoParser(content).getProtoFile();
+    store(snapshotPath, protoFile);
+    return protoFile;
+  }
+
+  static String snapshotKey(String content) {
+    return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString()
+        + "-"
+        + MODEL_TAG;
+  }
+
+  private void store(Path snapshotPath, ProtoFile protoFile) throws IOException {
+    Files.createDirectories(cacheDir);
+    // Write to a temporary file first, so that concurrent runs never observe a partial snapshot.
+    Path tmpPath = Files.createTempFile(cacheDir, "snapshot", ".tmp");
+    try {
+      try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmpPath))) {
+        write(os, protoFile);
+      }
+      Files.move(tmpPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IllegalArgumentException e) {
+      // The model contains something the snapshot format cannot represent; just don't cache it.
+      System.err.printf("*** not caching proto model snapshot: %s\n", e.getMessage());
+    } finally {
+      Files.deleteIfExists(tmpPath);
+    }
+  }
+
+  //
+  // Writing
+  //
+
+  static void write(OutputStream os, ProtoFile protoFile) throws IOException {
+    write(os, protoFile, MODEL_TAG);
+  }
+
+  static void write(OutputStream os, ProtoFile protoFile, String modelTag) throws IOException {
+    DataOutputStream out = new DataOutputStream(os);
+    out.writeInt(MAGIC);
+    out.writeUTF(modelTag);
+
+    ProtoFileMetadata metadata = protoFile.getMetadata();
+    writeString(out, metadata.getDiscoFileName());
+    writeString(out, metadata.getDiscoName());
+    writeString(out, metadata.getDiscoVersion());
+    writeString(out, metadata.getDiscoRevision());
+    writeString(out, metadata.getProtoPkg());
+    writeString(out, metadata.getProtoPkgVersion());
+    out.writeBoolean(protoFile.isHasLroDefinitions());
+    out.writeBoolean(protoFile.HasAnyFields());
+    out.writeBoolean(protoFile.UsesStructProto());
+
+    // Message headers (including nested enums) go first, so that all the message objects exist by
+    // the time field types referencing them are read back.
+    Map<String, Message> messages = protoFile.getMessages();
+    out.writeInt(messages.size());
+    for (Message message : messages.values()) {
+      writeMessageHeader(out, message);
+    }
+    for (Message message : messages.values()) {
+      writeMessageFields(out, message, messages);
+    }
+    // The fingerprints are stored along with the model, so that merging with it does not have to
+    // recompute them.
+    Map<String, String> fingerprints = protoFile.getMessageFingerprints();
+    for (Message message : messages.values()) {
+      out.writeUTF(fingerprints.get(message.getName()));
+    }
+
+    out.writeInt(protoFile.getServices().size());
+    for (GrpcService service : protoFile.getServices().values()) {
+      writeString(out, service.getName());
+      writeString(out, service.getDescription());
+      writeOptions(out, service.getOptions());
+      out.writeInt(service.getMethods().size());
+      for (GrpcMethod method : service.getMethods()) {
+        writeString(out, method.getName());
+        writeString(out, method.getDescription());
+        writeMessageName(out, method.getInput(), messages);
+        writeMessageName(out, method.getOutput(), messages);
+        writeOptions(out, method.getOptions());
+      }
+    }
+    out.flush();
+  }
+
+  private static void writeMessageHeader(DataOutputStream out, Message message) throws IOException {
+    writeString(out, message.getName());
+    out.writeBoolean(message.isRef());
+    out.writeBoolean(message.isEnum());
+    writeString(out, message.getDescription());
+    out.writeInt(message.getEnums().size());
+    for (Message nestedEnum : message.getEnums()) {
+      writeMessageHeader(out, nestedEnum);
+    }
+  }
+
+  private static void writeMessageFields(
+      DataOutputStream out, Message message, Map<String, Message> messages) throws IOException {
+    for (Message nestedEnum : message.getEnums()) {
+      writeMessageFields(out, nestedEnum, messages);
+    }
+    out.writeInt(message.getFields().size());
+    for (Field field : message.getFields()) {
+      writeString(out, field.getName());
+      writeTypeReference(out, field.getValueType(), message, messages);
+      out.writeBoolean(field.isRepeated());
+      out.writeBoolean(field.isOptional());
+      writeTypeReference(out, field.getKeyType(), message, messages);
+      writeString(out, field.getDescription());
+      out.writeBoolean(field.isFirstInOrder());
+      writeOptions(out, field.getOptions());
+    }
+  }
+
+  private static void writeTypeReference(
+      DataOutputStream out, Message type, Message container, Map<String, Message> messages)
+      throws IOException {
+    if (type == null) {
+      out.writeByte(TYPE_NULL);
+    } else if (Message.PRIMITIVES.get(type.getName()) == type) {
+      out.writeByte(TYPE_PRIMITIVE);
+      out.writeUTF(type.getName());
+    } else if (messages.get(type.getName()) == type) {
+      out.writeByte(TYPE_MESSAGE);
+      out.writeUTF(type.getName());
+    } else if (container.getEnums().contains(type)) {
+      out.writeByte(TYPE_NESTED);
+      out.writeUTF(type.getName());
+    } else {
+      throw new IllegalArgumentException(
+          "unsupported reference to type " + type.getName() + " in " + container.getName());
+    }
+  }
+
+  private static void writeMessageName(
+      DataOutputStream out, Message message, Map<String, Message> messages) throws IOException {
+    if (message != null && messages.get(message.getName()) != message) {
+      throw new IllegalArgumentException("unsupported reference to message " + message.getName());
+    }
+    writeString(out, message == null ? null : message.getName());
+  }
+
+  private static void writeOptions(DataOutputStream out, List<Option> options) throws IOException {
+    out.writeInt(options.size());
+    for (Option option : options) {
+      out.writeUTF(option.getName());
+      out.writeInt(option.getProperties().size());
+      for (Map.Entry<String, Object> prop : option.getProperties().entrySet()) {
+        out.writeUTF(prop.getKey());
+        Object value = prop.getValue();
+        if (value instanceof String) {
+          out.writeByte(VALUE_STRING);
+          writeLongString(out, (String) value);
+        } else if (value instanceof Boolean) {
+          out.writeByte(VALUE_BOOLEAN);
+          out.writeBoolean((Boolean) value);
+        } else if (value instanceof ProtoOptionValues) {
+          out.writeByte(VALUE_OPTION);
+          out.writeUTF(((ProtoOptionValues) value).name());
+        } else {
+          throw new IllegalArgumentException(
+              "unsupported value " + value + " for option " + option.getName());
+        }
+      }
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeLongString(out, value);
+    }
+  }
+
+  // DataOutputStream.writeUTF() is limited to 64K bytes, which descriptions may exceed.
+  private static void writeLongString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  //
+  // Reading
+  //
+
+  static ProtoFile read(InputStream is) throws IOException {
+    DataInputStream in = new DataInputStream(is);
+    if (in.readInt() != MAGIC || !MODEL_TAG.equals(in.readUTF())) {
+      throw new IOException("not a proto model snapshot of the current version");
+    }
+
+    ProtoFile protoFile = new ProtoFile();
+    protoFile.setMetadata(
+        new ProtoFileMetadata(
+            readString(in),
+            readString(in),
+            readString(in),
+            readString(in),
+            readString(in),
+            readString(in)));
+    protoFile.setHasLroDefinitions(in.readBoolean());
+    protoFile.setHasAnyFields(in.readBoolean());
+    protoFile.setUsesStructProto(in.readBoolean());
+
+    Map<String, Message> messages = protoFile.getMessages();
+    List<Message> messageOrder = new ArrayList<>();
+    int messageCount = in.readInt();
+    for (int i = 0; i < messageCount; i++) {
+      Message message = readMessageHeader(in);
+      messages.put(message.getName(), message);
+      messageOrder.add(message);
+    }
+    for (Message message : messageOrder) {
+      readMessageFields(in, message, messages);
+    }
+    Map<String, String> fingerprints = new HashMap<>();
+    for (Message message : messageOrder) {
+      fingerprints.put(message.getName(), in.readUTF());
+    }
+    protoFile.setMessageFingerprints(fingerprints);
+
+    int serviceCount = in.readInt();
+    for (int i = 0; i < serviceCount; i++) {
+      GrpcService service = new GrpcService(readString(in), readString(in));
+      readOptions(in, service.getOptions());
+      int methodCount = in.readInt();
+      for (int j = 0; j < methodCount; j++) {
+        String name = readString(in);
+        String description = readString(in);
+        Message input = readMessageName(in, messages);
+        Message output = readMessageName(in, messages);
+        GrpcMethod method = new GrpcMethod(name, input, output, description);
+        readOptions(in, method.getOptions());
+        service.getMethods().add(method);
+      }
+      protoFile.getServices().put(service.getName(), service);
+    }
+    return protoFile;
+  }
+
+  private static Message readMessageHeader(DataInputStream in) throws IOException {
+    Message message =
+        new Message(readString(in), in.readBoolean(), in.readBoolean(), readString(in));
+    int enumCount = in.readInt();
+    for (int i = 0; i < enumCount; i++) {
+      message.getEnums().add(readMessageHeader(in));
+    }
+    return message;
+  }
+
+  private static void readMessageFields(
+      DataInputStream in, Message message, Map<String, Message> messages) throws IOException {
+    // Nested enums were written in their (sorted) iteration order, which is reproduced here.
+    Map<String, Message> nestedEnums = new HashMap<>();
+    for (Message nestedEnum : message.getEnums()) {
+      readMessageFields(in, nestedEnum, messages);
+      nestedEnums.put(nestedEnum.getName(), nestedEnum);
+    }
+    int fieldCount = in.readInt();
+    for (int i = 0; i < fieldCount; i++) {
+      String name = readString(in);
+      Message valueType = readTypeReference(in, nestedEnums, messages);
+      boolean repeated = in.readBoolean();
+      boolean optional = in.readBoolean();
+      Message keyType = readTypeReference(in, nestedEnums, messages);
+      String description = readString(in);
+      boolean firstInOrder = in.readBoolean();
+      Field field =
+          new Field(name, valueType, repeated, optional, keyType, description, firstInOrder);
+      readOptions(in, field.getOptions());
+      message.getFields().add(field);
+    }
+  }
+
+  private static Message readTypeReference(
+      DataInputStream in, Map<String, Message> nestedEnums, Map<String, Message> messages)
+      throws IOException {
+    byte kind = in.readByte();
+    switch (kind) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_PRIMITIVE:
+        return resolve(Message.PRIMITIVES, in.readUTF());
+      case TYPE_MESSAGE:
+        return resolve(messages, in.readUTF());
+      case TYPE_NESTED:
+        return resolve(nestedEnums, in.readUTF());
+      default:
+        throw new IOException("unknown type reference kind " + kind);
+    }
+  }
+
+  private static Message readMessageName(DataInputStream in, Map<String, Message> messages)
+      throws IOException {
+    String name = readString(in);
+    return name == null ? null : resolve(messages, name);
+  }
+
+  private static Message resolve(Map<String, Message> types, String name) throws IOException {
+    Message type = types.get(name);
+    if (type == null) {
+      throw new IOException("dangling type reference " + name);
+    }
+    return type;
+  }
+
+  private static void readOptions(DataInputStream in, List<Option> options) throws IOException {
+    int optionCount = in.readInt();
+    for (int i = 0; i < optionCount; i++) {
+      Option option = new Option(in.readUTF());
+      int propertyCount = in.readInt();
+      for (int j = 0; j < propertyCount; j++) {
+        String key = in.readUTF();
+        byte kind = in.readByte();
+        switch (kind) {
+          case VALUE_STRING:
+            option.getProperties().put(key, readLongString(in));
+            break;
+          case VALUE_BOOLEAN:
+            option.getProperties().put(key, in.readBoolean());
+            break;
+          case VALUE_OPTION:
+            option.getProperties().put(key, ProtoOptionValues.valueOf(in.readUTF()));
+            break;
+          default:
+            throw new IOException("unknown option value kind " + kind);
+        }
+      }
+      options.add(option);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readLongString(in) : null;
+  }
+
+  private static String readLongString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // Derives a tag from the snapshot format version and the bytecode of the classes which determine
+  // the parsed model and its snapshot, so that any change to them invalidates previously written
+  // snapshots.
+  private static String computeModelTag() {
+    Hasher hasher = Hashing.murmur3_128().newHasher().putInt(FORMAT_VERSION);
+    Class<?>[] modelClasses = {
+      ProtoParser.class,
+      ProtoFileCache.class,
+      ProtoFile.class,
+      ProtoFileMetadata.class,
+      ProtoElement.class,
+      Message.class,
+      Field.class,
+      Option.class,
+      GrpcService.class,
+      GrpcMethod.class,
+      MessageFingerprint.class,
+      ProtoOptionValues.class
+    };
+    for (Class<?> modelClass : modelClasses) {
+      String resource = modelClass.getSimpleName() + ".class";
+      try (InputStream is = modelClass.getResourceAsStream(resource)) {
+        if (is == null) {
+          throw new IllegalStateException("missing class file " + resource);
+        }
+        hasher.putString(resource, StandardCharsets.UTF_8).putBytes(is.readAllBytes());
+      } catch (IOException e) {
+        throw new IllegalStateException("unreadable class file " + resource, e);
+      }
+    }
+    return hasher.hash().toString().substring(0, 16);
+  }
+}
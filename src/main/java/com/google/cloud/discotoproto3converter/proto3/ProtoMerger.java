@@ -15,11 +15,11 @@
  */
 package com.google.cloud.discotoproto3converter.proto3;
 
+import com.google.cloud.discotoproto3converter.jfr.ProtoMergeEvent;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 // This class does not intend to do a fully-functional merge of two proto models, instead it focuses
 // on merging currently known potential discrepancies between old and new proto files:
@@ -29,31 +29,71 @@ import java.util.stream.Collectors;
 // - mismatching field annotations (old overwrite new).
 //
 // Additional merging functionality is expected to be added to this class as needed.
+//
+// All name lookups go through indexes computed once per merge, and messages whose structure and
+// options are identical in both models (as determined by MessageFingerprint) are skipped entirely.
+// The fingerprints of the old model are computed at most once per model (and are loaded along with
+// the model if it comes from a ProtoFileCache snapshot), so a merge hashes each message of the new
+// model once and only merges the changed messages.
 public class ProtoMerger {
-  // This method will modify content of the newProto parameter
-  public void merge(ProtoFile newProto, ProtoFile oldProto) {
-    mergeMessages(newProto.getMessages(), oldProto.getMessages());
-    mergeServices(newProto.getServices(), oldProto.getServices());
-  }
-
-  private void mergeServices(
-      Map<String, GrpcService> newServices, Map<String, GrpcService> oldServices) {
-    for (GrpcService oldService : oldServices.values()) {
-      GrpcService newService = newServices.get(oldService.getName());
-
+  // Messages of the new model by name. Used to re-point copied fields to the new model's message
+  // objects.
+  private Map<String, Message> newMessagesIndex;
+  // Methods of the new model by service name and method name.
+  private Map<String, Map<String, GrpcMethod>> newMethodsIndex;
+
+  // This method will modify content of the newProto parameter. Returns the number of messages
+  // which actually had to be merged.
+  public int merge(ProtoFile newProto, ProtoFile oldProto) {
+    ProtoMergeEvent event = new ProtoMergeEvent();
+    event.begin();
+    newMessagesIndex = new HashMap<>(newProto.getMessages());
+    newMethodsIndex = new HashMap<>();
+    for (GrpcService newService : newProto.getServices().values()) {
       Map<String, GrpcMethod> newMethodsMap = new HashMap<>();
       for (GrpcMethod newMethod : newService.getMethods()) {
         newMethodsMap.put(newMethod.getName(), newMethod);
       }
+      newMethodsIndex.put(newService.getName(), newMethodsMap);
+    }
 
+    int mergedMessages = mergeMessages(newProto, oldProto);
+    mergeServices(oldProto.getServices());
+    if (event.shouldCommit()) {
+      event.previousMessages = oldProto.getMessages().size();
+      event.mergedMessages = mergedMessages;
+      event.commit();
+    }
+
+    newMessagesIndex = null;
+    newMethodsIndex = null;
+    return mergedMessages;
+  }
+
+  // The services and methods which are no longer generated (e.g. with a service allowlist) are
+  // skipped.
+  private void mergeServices(Map<String, GrpcService> oldServices) {
+    for (GrpcService oldService : oldServices.values()) {
+      Map<String, GrpcMethod> newMethodsMap = newMethodsIndex.get(oldService.getName());
+      if (newMethodsMap == null) {
+        continue;
+      }
       for (GrpcMethod oldMethod : oldService.getMethods()) {
-        mergeMethodSignatureOption(newMethodsMap.get(oldMethod.getName()), oldMethod);
+        GrpcMethod newMethod = newMethodsMap.get(oldMethod.getName());
+        if (newMethod != null) {
+          mergeMethodSignatureOption(newMethod, oldMethod);
+        }
       }
     }
   }
 
   private Optional<Option> getOption(List<Option> options, String optionName) {
-    return options.stream().filter(a -> optionName.equals(a.getName())).findFirst();
+    for (Option option : options) {
+      if (optionName.equals(option.getName())) {
+        return Optional.of(option);
+      }
+    }
+    return Optional.empty();
   }
 
   private void mergeMethodSignatureOption(GrpcMethod newMethod, GrpcMethod oldMethod) {
@@ -72,62 +112,67 @@ public class ProtoMerger {
     }
   }
 
-  private void mergeMessages(Map<String, Message> newMessages, Map<String, Message> oldMessages) {
-    for (Map.Entry<String, Message> entry : oldMessages.entrySet()) {
-      Message oldMessage = entry.getValue();
-      Message newMessage = newMessages.get(entry.getKey());
+  // Returns the number of messages which actually had to be merged.
+  private int mergeMessages(ProtoFile newProto, ProtoFile oldProto) {
+    Map<String, Message> oldMessages = oldProto.getMessages();
+    Map<String, String> oldFingerprints = oldProto.getMessageFingerprints();
+    int mergedMessages = 0;
+    for (Message newMessage : newProto.getMessages().values()) {
+      Message oldMessage = oldMessages.get(newMessage.getName());
+
+      if (oldMessage == null
+          || MessageFingerprint.of(newMessage, false)
+              .equals(oldFingerprints.get(oldMessage.getName()))) {
+        // Either there is nothing to merge from, or the messages (including their nested enums)
+        // are structurally identical, in which case merging would be a no-op.
+        continue;
+      }
 
       // Merge fields
-      mergeFields(newMessage, oldMessage, newMessages);
+      mergeFields(newMessage, oldMessage);
 
       // Merge enums
-      mergeEnums(newMessages, oldMessage, newMessage);
+      mergeEnums(oldMessage, newMessage);
+      mergedMessages++;
     }
+    return mergedMessages;
   }
 
-  private void mergeEnums(
-      Map<String, Message> newMessages, Message oldMessage, Message newMessage) {
-
-    if (newMessage == null) {
-      return;
-    }
-
+  private void mergeEnums(Message oldMessage, Message newMessage) {
     Map<String, Message> newEnumsMap = new HashMap<>();
     for (Message nestedEnum : newMessage.getEnums()) {
       newEnumsMap.put(nestedEnum.getName(), nestedEnum);
     }
     for (Message oldEnum : oldMessage.getEnums()) {
       Message newEnum = newEnumsMap.get(oldEnum.getName());
-      mergeFields(newEnum, oldEnum, newMessages);
+      if (newEnum != null) {
+        mergeFields(newEnum, oldEnum);
+      }
     }
   }
 
-  private void mergeFields(
-      Message newMessage, Message oldMessage, Map<String, Message> newMessages) {
-
-    if (newMessage == null) {
-      return;
+  private void mergeFields(Message newMessage, Message oldMessage) {
+    Map<String, Field> newFieldsMap = new HashMap<>();
+    for (Field newField : newMessage.getFields()) {
+      newFieldsMap.put(newField.getName(), newField);
     }
 
-    // Merge fields
-    Map<String, Field> newFieldsMap =
-        newMessage.getFields().stream().collect(Collectors.toMap(ProtoElement::getName, f -> f));
-
     for (Field oldField : oldMessage.getFields()) {
-      // compareTo() will be used by contains() to search for the field, not equals().
-      if (!newMessage.getFields().contains(oldField)) {
+      Field newField = newFieldsMap.get(oldField.getName());
+      // Fields are ordered (and thus found in the fields set) by their name and by whether they
+      // go first in order, so both have to match for the old field to be considered present.
+      if (newField == null || newField.isFirstInOrder() != oldField.isFirstInOrder()) {
         // Copy removed field
-        Field copiedField = copyField(null, oldField, newMessages);
+        Field copiedField = copyField(null, oldField);
         if (copiedField != null) {
           newMessage.getFields().add(copiedField);
         }
       } else {
-        Field newField = newFieldsMap.get(oldField.getName());
         // Copy missing options if a new field has fewer options than old field.
         // This is a very primitive merge logic. Add a proper merge logic if ever needed.
         if (oldField.getOptions().size() > newField.getOptions().size()
             || oldField.isOptional() != newField.isOptional()) {
-          Field copiedField = copyField(newField, oldField, newMessages);
+          Field copiedField = copyField(newField, oldField);
           if (copiedField != null) {
             newMessage.getFields().remove(newField);
             newMessage.getFields().add(copiedField);
@@ -140,19 +185,19 @@ public class ProtoMerger {
   // We need to replace references for message types from oldMessages to newMessages.
   // Despite message types having the same names, they are two independently created
   // sets of objects.
-  private Field copyField(Field newField, Field oldField, Map<String, Message> newMessages) {
+  private Field copyField(Field newField, Field oldField) {
     Message valueType = null;
     if (oldField.getValueType() != null) {
       valueType = Message.PRIMITIVES.get(oldField.getValueType().getName());
       if (valueType == null) {
-        valueType = newMessages.get(oldField.getValueType().getName());
+        valueType = newMessagesIndex.get(oldField.getValueType().getName());
       }
     }
     Message keyType = null;
     if (oldField.getKeyType() != null) {
       keyType = Message.PRIMITIVES.get(oldField.getValueType().getName());
       if (keyType == null) {
-        keyType = newMessages.get(oldField.getKeyType().getName());
+        keyType = newMessagesIndex.get(oldField.getKeyType().getName());
       }
     }
 
@@ -15,6 +15,7 @@
  */
 package com.google.cloud.discotoproto3converter.proto3;
 
+import com.google.cloud.discotoproto3converter.jfr.ProtoParseEvent;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -64,13 +65,19 @@ public class ProtoParser {
   private final ProtoFile protoFile = new ProtoFile();
 
   public ProtoParser(String content) {
+    ProtoParseEvent event = new ProtoParseEvent();
+    event.begin();
     this.protoFile.setMetadata(parseProtoFileMetadata(content));
     String normalizedContent = normalizeContent(content);
     parseMessages(normalizedContent);
-    for (Message message : protoFile.getMessages().values()) {
-      resolveReferences(message);
-    }
+    ReferenceResolver.resolveReferences(protoFile.getMessages());
     parseServices(normalizedContent);
+    if (event.shouldCommit()) {
+      event.contentLength = content.length();
+      event.messages = protoFile.getMessages().size();
+      event.services = protoFile.getServices().size();
+      event.commit();
+    }
   }
 
   private String normalizeContent(String content) {
@@ -126,17 +133,6 @@ public class ProtoParser {
     scanner.close();
   }
 
-  private void resolveReferences(Message message) {
-    for (Field field : message.getFields()) {
-      Message valueType = field.getValueType();
-      if (valueType.isRef()) {
-        field.setValueType(protoFile.getMessages().get(valueType.getName()));
-      } else {
-        resolveReferences(valueType);
-      }
-    }
-  }
-
   private Message parseMessage(Scanner scanner, String line) {
     Matcher m = MESSAGE_PATTERN.matcher(line);
     if (!m.find()) {
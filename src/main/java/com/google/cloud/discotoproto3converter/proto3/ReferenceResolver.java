@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Replaces the reference placeholders (messages with isRef() set) used as field value types with
+// the messages they refer to in the message registry.
+//
+// All the messages reachable from the registry through non-reference value types (e.g. inline
+// messages) are visited exactly once, using an explicit stack, so the resolution is linear in the
+// size of the model and safe for self-referential and mutually recursive messages, no matter how
+// many paths lead to a message or how deeply messages are nested.
+class ReferenceResolver {
+  private ReferenceResolver() {}
+
+  static void resolveReferences(Map<String, Message> messages) {
+    Set<Message> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<Message> stack = new ArrayDeque<>();
+    for (Message message : messages.values()) {
+      if (visited.add(message)) {
+        stack.push(message);
+      }
+      while (!stack.isEmpty()) {
+        for (Field field : stack.pop().getFields()) {
+          Message valueType = field.getValueType();
+          if (valueType == null) {
+            continue;
+          }
+          if (valueType.isRef()) {
+            // Replace the placeholder with a link to the message it references. Referenced
+            // messages are registered, so they are visited from the outer loop.
+            field.setValueType(messages.get(valueType.getName()));
+          } else if (visited.add(valueType)) {
+            stack.push(valueType);
+          }
+        }
+      }
+    }
+  }
+}
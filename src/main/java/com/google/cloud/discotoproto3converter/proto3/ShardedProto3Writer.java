@@ -0,0 +1,250 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import com.google.cloud.discotoproto3converter.disco.Name;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Writes a proto file model as several proto files of the same package, so that they can be
+// compiled (and their generated code built) in parallel and cached independently: one file per
+// service, with the service and the messages only it uses (typically its request and response
+// messages), and a shared "<stem>_resources.proto" file with all the other messages.
+//
+// A message goes to the file of a service only if the methods of that service and the messages of
+// that file are the only ones referencing it, so the shared file never imports the files of the
+// services and those never import each other. The files of the services import the shared file
+// only if they reference any of its messages.
+public class ShardedProto3Writer {
+  // The owner of the messages written to the shared file.
+  private static final String SHARED = "";
+
+  private final Proto3Writer writer;
+
+  public ShardedProto3Writer() {
+    this(new Proto3Writer());
+  }
+
+  // Writes the files with the given writer, e.g. one with a render cache.
+  public ShardedProto3Writer(Proto3Writer writer) {
+    this.writer = writer;
+  }
+
+  // Returns the contents of the files to write, keyed by file name: first the shared file, then the
+  // files of the services in the order of their names.
+  public Map<String, String> writeShards(
+      ProtoFile protoFile, String fileStem, boolean outputComments) {
+    Map<String, String> owners = assignMessages(protoFile);
+    Map<String, List<Message>> messagesByOwner = new HashMap<>();
+    for (Message message : protoFile.getMessages().values()) {
+      messagesByOwner
+          .computeIfAbsent(owners.get(message.getName()), k -> new ArrayList<>())
+          .add(message);
+    }
+
+    ProtoFileMetadata metadata = protoFile.getMetadata();
+    String resourcesFileName = fileStem + "_resources.proto";
+    String resourcesImport = metadata.getProtoPkg().replace('.', '/') + "/" + resourcesFileName;
+    List<Message> sharedMessages =
+        messagesByOwner.getOrDefault(SHARED, Collections.<Message>emptyList());
+
+    Map<String, String> shards = new LinkedHashMap<>();
+    Set<String> imports = wellKnownImports(protoFile, sharedMessages, Collections.emptyList());
+    shards.put(
+        resourcesFileName,
+        write(metadata, imports, sharedMessages, Collections.emptyList(), outputComments));
+
+    for (GrpcService service : protoFile.getServices().values()) {
+      String fileName = Name.anyCamel(service.getName()).toLowerUnderscore() + ".proto";
+      if (shards.containsKey(fileName)) {
+        throw new IllegalStateException(
+            "the file of service " + service.getName() + " conflicts with " + fileName);
+      }
+      List<Message> messages =
+          messagesByOwner.getOrDefault(service.getName(), Collections.<Message>emptyList());
+      List<GrpcService> services = Collections.singletonList(service);
+      imports = wellKnownImports(protoFile, messages, services);
+      if (referencesShared(protoFile, owners, messages, service)) {
+        imports.add(resourcesImport);
+      }
+      shards.put(fileName, write(metadata, imports, messages, services, outputComments));
+    }
+    return shards;
+  }
+
+  // Maps the name of every top-level message to the name of the service whose file it goes to, or
+  // to SHARED if it goes to the shared file. The owner of a message is the service of the methods
+  // and of the messages referencing it, or SHARED if they are of more than one service, or if the
+  // message is not (even indirectly) used by any method.
+  static Map<String, String> assignMessages(ProtoFile protoFile) {
+    Map<String, Message> messages = protoFile.getMessages();
+    Map<String, String> owners = new HashMap<>();
+    Deque<String> changed = new ArrayDeque<>();
+    for (GrpcService service : protoFile.getServices().values()) {
+      for (GrpcMethod method : service.getMethods()) {
+        assign(messages, owners, changed, method.getInput(), service.getName());
+        assign(messages, owners, changed, method.getOutput(), service.getName());
+      }
+    }
+    propagate(messages, owners, changed);
+
+    // The messages used by no method, and all the messages they reference, are shared.
+    for (Message message : messages.values()) {
+      if (!owners.containsKey(message.getName())) {
+        assign(messages, owners, changed, message, SHARED);
+      }
+    }
+    propagate(messages, owners, changed);
+    return owners;
+  }
+
+  // Propagates the owners of the changed messages to the messages they reference. An owner only
+  // changes from none to a service and from a service to SHARED, so every message is processed at
+  // most twice.
+  private static void propagate(
+      Map<String, Message> messages, Map<String, String> owners, Deque<String> changed) {
+    while (!changed.isEmpty()) {
+      String name = changed.pop();
+      String owner = owners.get(name);
+      for (Field field : messages.get(name).getFields()) {
+        assign(messages, owners, changed, field.getValueType(), owner);
+        assign(messages, owners, changed, field.getKeyType(), owner);
+      }
+    }
+  }
+
+  private static void assign(
+      Map<String, Message> messages,
+      Map<String, String> owners,
+      Deque<String> changed,
+      Message type,
+      String owner) {
+    Message message = topLevelMessage(messages, type);
+    if (message == null) {
+      return;
+    }
+    String current = owners.get(message.getName());
+    if (current == null) {
+      owners.put(message.getName(), owner);
+      changed.push(message.getName());
+    } else if (!current.equals(owner) && !current.equals(SHARED)) {
+      owners.put(message.getName(), SHARED);
+      changed.push(message.getName());
+    }
+  }
+
+  // Returns the top-level message of the given type, or null if the type is a primitive or a nested
+  // enum.
+  private static Message topLevelMessage(Map<String, Message> messages, Message type) {
+    if (type == null) {
+      return null;
+    }
+    Message message = messages.get(type.getName());
+    return message != null && message.isEnum() == type.isEnum() ? message : null;
+  }
+
+  private static boolean referencesShared(
+      ProtoFile protoFile,
+      Map<String, String> owners,
+      Collection<Message> messages,
+      GrpcService service) {
+    Map<String, Message> allMessages = protoFile.getMessages();
+    List<Message> types = new ArrayList<>();
+    for (Message message : messages) {
+      for (Field field : message.getFields()) {
+        types.add(field.getValueType());
+        types.add(field.getKeyType());
+      }
+    }
+    for (GrpcMethod method : service.getMethods()) {
+      types.add(method.getInput());
+      types.add(method.getOutput());
+    }
+    for (Message type : types) {
+      Message message = topLevelMessage(allMessages, type);
+      if (message != null && SHARED.equals(owners.get(message.getName()))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // The imports of a file with the given messages and services, other than the shared file.
+  private static Set<String> wellKnownImports(
+      ProtoFile protoFile, Collection<Message> messages, Collection<GrpcService> services) {
+    Set<String> imports = new TreeSet<>(Proto3Writer.API_IMPORTS);
+    for (Message message : messages) {
+      for (Field field : message.getFields()) {
+        String typeName = field.getValueType() == null ? "" : field.getValueType().getName();
+        if (typeName.equals("google.protobuf.Any")) {
+          imports.add(Proto3Writer.ANY_IMPORT);
+        } else if (typeName.equals("google.protobuf.Value")
+            || typeName.equals("google.protobuf.ListValue")
+            || typeName.equals("google.protobuf.Struct")) {
+          imports.add(Proto3Writer.STRUCT_IMPORT);
+        }
+        if (protoFile.isHasLroDefinitions() && hasOperationOption(field.getOptions())) {
+          imports.add(Proto3Writer.EXTENDED_OPERATIONS_IMPORT);
+        }
+      }
+    }
+    for (GrpcService service : services) {
+      if (protoFile.isHasLroDefinitions() && hasOperationOption(service.getOptions())) {
+        imports.add(Proto3Writer.EXTENDED_OPERATIONS_IMPORT);
+      }
+      for (GrpcMethod method : service.getMethods()) {
+        if (protoFile.isHasLroDefinitions() && hasOperationOption(method.getOptions())) {
+          imports.add(Proto3Writer.EXTENDED_OPERATIONS_IMPORT);
+        }
+      }
+    }
+    return imports;
+  }
+
+  // Whether any of the options is defined in google/cloud/extended_operations.proto.
+  private static boolean hasOperationOption(List<Option> options) {
+    for (Option option : options) {
+      if (option.getName().startsWith("google.cloud.operation_")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String write(
+      ProtoFileMetadata metadata,
+      Collection<String> imports,
+      Collection<Message> messages,
+      Collection<GrpcService> services,
+      boolean outputComments) {
+    StringWriter sw = new StringWriter();
+    try (PrintWriter pw = new PrintWriter(sw)) {
+      writer.writeToFile(pw, metadata, imports, messages, services, outputComments);
+    }
+    return sw.toString();
+  }
+}
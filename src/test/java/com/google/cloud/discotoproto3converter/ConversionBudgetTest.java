@@ -0,0 +1,239 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.discotoproto3converter.disco.DiscoveryNode;
+import com.google.cloud.discotoproto3converter.disco.Document;
+import com.google.cloud.discotoproto3converter.gapic.GapicYamlWriter;
+import com.google.cloud.discotoproto3converter.proto3.ConverterWriter;
+import com.google.cloud.discotoproto3converter.proto3.DocumentToProtoConverter;
+import com.google.cloud.discotoproto3converter.proto3.PhaseUsage;
+import com.google.cloud.discotoproto3converter.proto3.Proto3Writer;
+import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import com.google.cloud.discotoproto3converter.proto3.ProtoMerger;
+import com.google.cloud.discotoproto3converter.proto3.ProtoParser;
+import com.google.cloud.discotoproto3converter.serviceconfig.ServiceConfigWriter;
+import com.google.common.io.CharStreams;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the bytes allocated and the CPU time used by each phase of the conversion pipeline against
+ * the budgets checked in to {@code src/test/resources/conversion_budgets.properties}, to catch
+ * accidental complexity regressions before they are released.
+ *
+ * <p>A phase fails its budget when it exceeds it by more than the tolerance, a fraction of the
+ * budget given by the {@code budget.tolerance} (allocations, default 0.5) and {@code
+ * budget.cpuTolerance} (CPU time, default 4, as CPU time is much noisier) system properties. The
+ * budgets are regenerated from the current measurements by running the test with {@code
+ * -Dbudget.update=true}.
+ */
+public class ConversionBudgetTest {
+  private static final Path BUDGETS_PATH =
+      Paths.get("src", "test", "resources", "conversion_budgets.properties");
+  private static final String BUDGETS_HEADER =
+      "# Allocation and CPU time budgets of the conversion phases, checked by\n"
+          + "# ConversionBudgetTest. Regenerate with:\n"
+          + "#   mvn test -Dtest=ConversionBudgetTest -Dbudget.update=true\n";
+  private static final int WARMUP_RUNS = 2;
+  private static final int MEASURED_RUNS = 3;
+  // Absolute slack on top of the relative tolerance, so that phases which are too short to be
+  // measured precisely do not fail spuriously.
+  private static final long ALLOCATION_SLACK_BYTES = 1 << 20;
+  private static final long CPU_SLACK_MILLIS = 50;
+
+  private static Properties budgets;
+
+  @BeforeClass
+  public static void setUpClass() throws IOException {
+    budgets = new Properties();
+    try (Reader reader = Files.newBufferedReader(BUDGETS_PATH, StandardCharsets.UTF_8)) {
+      budgets.load(reader);
+    }
+  }
+
+  @Test
+  public void computeV1WithinBudget() throws IOException {
+    Path dir = Paths.get("src", "test", "resources", "google", "cloud", "compute", "v1");
+    checkBudgets(
+        "compute.v1",
+        dir.resolve("compute.v1.json"),
+        new String(
+            Files.readAllBytes(dir.resolve("compute.v1.config.input.json")),
+            StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void computeV1SmallWithinBudget() throws IOException {
+    Path dir = Paths.get("src", "test", "resources", "google", "cloud", "compute", "v1small");
+    checkBudgets("compute.v1small", dir.resolve("compute.v1small.json"), null);
+  }
+
+  private static void checkBudgets(String input, Path discoveryDocPath, String inputConfig)
+      throws IOException {
+    PhaseUsage probe = PhaseUsage.begin().end();
+    assumeTrue(
+        "allocation and CPU time measurement is not supported by this JVM",
+        probe.getAllocatedBytes() >= 0 && probe.getCpuNanos() >= 0);
+
+    String content = new String(Files.readAllBytes(discoveryDocPath), StandardCharsets.UTF_8);
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      runPipeline(content, inputConfig);
+    }
+    // The minimum of several runs is the least affected by unrelated activity (GC, JIT).
+    Map<String, long[]> usage = new LinkedHashMap<>();
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      for (Map.Entry<String, PhaseUsage> entry : runPipeline(content, inputConfig).entrySet()) {
+        long[] min =
+            usage.computeIfAbsent(entry.getKey(), k -> new long[] {Long.MAX_VALUE, Long.MAX_VALUE});
+        min[0] = Math.min(min[0], entry.getValue().getAllocatedBytes());
+        min[1] = Math.min(min[1], entry.getValue().getCpuNanos() / 1_000_000);
+      }
+    }
+
+    if (Boolean.getBoolean("budget.update")) {
+      updateBudgets(input, usage);
+      return;
+    }
+
+    double tolerance = Double.parseDouble(System.getProperty("budget.tolerance", "0.5"));
+    double cpuTolerance = Double.parseDouble(System.getProperty("budget.cpuTolerance", "4"));
+    List<String> violations = new ArrayList<>();
+    for (Map.Entry<String, long[]> entry : usage.entrySet()) {
+      String key = input + "." + entry.getKey();
+      check(violations, key + ".allocatedBytes", entry.getValue()[0], tolerance);
+      check(violations, key + ".cpuMillis", entry.getValue()[1], cpuTolerance);
+    }
+    assertTrue(
+        "Phases over budget (rerun with -Dbudget.update=true if the increase is expected):\n"
+            + String.join("\n", violations),
+        violations.isEmpty());
+  }
+
+  private static void check(List<String> violations, String key, long actual, double tolerance) {
+    String budgetValue = budgets.getProperty(key);
+    if (budgetValue == null) {
+      violations.add(String.format("%s: no budget (actual %d)", key, actual));
+      return;
+    }
+    long budget = Long.parseLong(budgetValue);
+    long slack = key.endsWith(".cpuMillis") ? CPU_SLACK_MILLIS : ALLOCATION_SLACK_BYTES;
+    long allowed = (long) (budget * (1 + tolerance)) + slack;
+    if (actual > allowed) {
+      violations.add(
+          String.format("%s: %d exceeds budget %d (allowed %d)", key, actual, budget, allowed));
+    }
+  }
+
+  // Runs all the phases of a conversion (with a merge and all the writers), returning the
+  // resources used by each.
+  private static Map<String, PhaseUsage> runPipeline(String content, String inputConfig)
+      throws IOException {
+    Map<String, PhaseUsage> usage = new LinkedHashMap<>();
+
+    PhaseUsage start = PhaseUsage.begin();
+    JsonNode root = new ObjectMapper().readTree(content);
+    usage.put("parseJson", start.end());
+
+    start = PhaseUsage.begin();
+    Document document = Document.from(new DiscoveryNode(root));
+    usage.put("documentFrom", start.end());
+
+    DocumentToProtoConverter converter =
+        new DocumentToProtoConverter(
+            document,
+            "compute.json",
+            Collections.emptySet(),
+            Collections.emptySet(),
+            "https://cloud.google.com",
+            true,
+            inputConfig,
+            "2026-01-01T00:00:00Z");
+    converter.getOutputConfig();
+    for (Map.Entry<String, PhaseUsage> entry : converter.getPassUsage().entrySet()) {
+      usage.put("convert." + entry.getKey(), entry.getValue());
+    }
+    ProtoFile protoFile = converter.getProtoFile();
+
+    for (ConverterWriter writer :
+        Arrays.asList(new Proto3Writer(), new ServiceConfigWriter(), new GapicYamlWriter())) {
+      start = PhaseUsage.begin();
+      try (PrintWriter pw = new PrintWriter(CharStreams.nullWriter())) {
+        writer.writeToFile(pw, protoFile, true);
+      }
+      usage.put("write." + writer.getClass().getSimpleName(), start.end());
+    }
+
+    StringWriter proto = new StringWriter();
+    try (PrintWriter pw = new PrintWriter(proto)) {
+      new Proto3Writer().writeToFile(pw, protoFile, true);
+    }
+    start = PhaseUsage.begin();
+    ProtoFile previousProtoFile = new ProtoParser(proto.toString()).getProtoFile();
+    usage.put("parseProto", start.end());
+
+    start = PhaseUsage.begin();
+    new ProtoMerger().merge(protoFile, previousProtoFile);
+    usage.put("merge", start.end());
+
+    return usage;
+  }
+
+  // Replaces the budgets of the given input with the given measurements, keeping the others.
+  private static synchronized void updateBudgets(String input, Map<String, long[]> usage)
+      throws IOException {
+    Properties updated = new Properties();
+    try (Reader reader = Files.newBufferedReader(BUDGETS_PATH, StandardCharsets.UTF_8)) {
+      updated.load(reader);
+    }
+    updated.keySet().removeIf(key -> ((String) key).startsWith(input + "."));
+    for (Map.Entry<String, long[]> entry : usage.entrySet()) {
+      String key = input + "." + entry.getKey();
+      updated.setProperty(key + ".allocatedBytes", Long.toString(entry.getValue()[0]));
+      updated.setProperty(key + ".cpuMillis", Long.toString(entry.getValue()[1]));
+    }
+
+    // Written sorted and without the time stamp Properties.store() adds, to keep diffs minimal.
+    try (Writer writer = Files.newBufferedWriter(BUDGETS_PATH, StandardCharsets.UTF_8)) {
+      writer.write(BUDGETS_HEADER);
+      for (Map.Entry<Object, Object> entry : new TreeMap<>(updated).entrySet()) {
+        writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+      }
+    }
+  }
+}
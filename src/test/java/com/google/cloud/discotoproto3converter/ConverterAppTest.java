@@ -38,7 +38,19 @@ public class ConverterAppTest {
               "--enums_as_strings=eta",
               "--output_comments=theta",
               "--input_config_path=iota",
-              "--output_config_path=kappa"
+              "--output_config_path=kappa",
+              "--previous_proto_cache_dir=lambda",
+              "--pass_timings=mu",
+              "--profile=nu",
+              "--footprint_report=xi",
+              "--prune_unreachable_messages=omicron",
+              "--service_allowlist=pi",
+              "--shard_output=rho",
+              "--output_descriptor_set_path=sigma",
+              "--validate_descriptors=tau",
+              "--render_cache_dir=upsilon",
+              "--hermetic=phi",
+              "--timestamp=chi"
             });
 
     assertEquals("alpha", parsedArgs.get("--discovery_doc_path"));
@@ -51,6 +63,18 @@ public class ConverterAppTest {
     assertEquals("theta", parsedArgs.get("--output_comments"));
     assertEquals("iota", parsedArgs.get("--input_config_path"));
     assertEquals("kappa", parsedArgs.get("--output_config_path"));
+    assertEquals("lambda", parsedArgs.get("--previous_proto_cache_dir"));
+    assertEquals("mu", parsedArgs.get("--pass_timings"));
+    assertEquals("nu", parsedArgs.get("--profile"));
+    assertEquals("xi", parsedArgs.get("--footprint_report"));
+    assertEquals("omicron", parsedArgs.get("--prune_unreachable_messages"));
+    assertEquals("pi", parsedArgs.get("--service_allowlist"));
+    assertEquals("rho", parsedArgs.get("--shard_output"));
+    assertEquals("sigma", parsedArgs.get("--output_descriptor_set_path"));
+    assertEquals("tau", parsedArgs.get("--validate_descriptors"));
+    assertEquals("upsilon", parsedArgs.get("--render_cache_dir"));
+    assertEquals("phi", parsedArgs.get("--hermetic"));
+    assertEquals("chi", parsedArgs.get("--timestamp"));
   }
 
   @Test
@@ -75,6 +99,18 @@ public class ConverterAppTest {
     assertEquals("true", parsedArgs.get("--output_comments"));
     assertEquals("", parsedArgs.get("--input_config_path"));
     assertEquals("", parsedArgs.get("--output_config_path"));
+    assertEquals("", parsedArgs.get("--previous_proto_cache_dir"));
+    assertEquals("", parsedArgs.get("--pass_timings"));
+    assertEquals("", parsedArgs.get("--profile"));
+    assertEquals("", parsedArgs.get("--footprint_report"));
+    assertEquals("false", parsedArgs.get("--prune_unreachable_messages"));
+    assertEquals("", parsedArgs.get("--service_allowlist"));
+    assertEquals("false", parsedArgs.get("--shard_output"));
+    assertEquals("", parsedArgs.get("--output_descriptor_set_path"));
+    assertEquals("false", parsedArgs.get("--validate_descriptors"));
+    assertEquals("", parsedArgs.get("--render_cache_dir"));
+    assertEquals("false", parsedArgs.get("--hermetic"));
+    assertEquals("", parsedArgs.get("--timestamp"));
   }
 
   @Test
@@ -92,4 +128,14 @@ public class ConverterAppTest {
                   "--relative_link_prefix=zeta"
                 }));
   }
+
+  @Test
+  public void timeStamps() {
+    assertEquals("2020-03-02T00:00:00Z", ConverterApp.revisionTimeStamp("20200302"));
+    assertEquals("2020-03-02T00:00:00Z", ConverterApp.parseTimeStamp("2020-03-02"));
+    assertEquals(
+        "2020-03-02T12:34:56-08:00", ConverterApp.parseTimeStamp("2020-03-02T12:34:56.789-08:00"));
+    assertThrows(IllegalArgumentException.class, () -> ConverterApp.revisionTimeStamp("latest"));
+    assertThrows(IllegalArgumentException.class, () -> ConverterApp.parseTimeStamp("yesterday"));
+  }
 }
@@ -16,16 +16,32 @@
 package com.google.cloud.discotoproto3converter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.cloud.discotoproto3converter.disco.SyntheticDocumentGenerator;
 import com.google.cloud.discotoproto3converter.proto3.ConversionConfiguration;
 import com.google.cloud.discotoproto3converter.proto3.DocumentToProtoConverter;
 import com.google.cloud.discotoproto3converter.proto3.DocumentToProtoConverter.MessageCollisionException;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -704,6 +720,62 @@ public class DiscoToProto3ConverterAppTest {
     assertEquals(baselineBody, actualBody);
   }
 
+  @Test
+  public void convertAllowlistedServicesWithMerge() throws IOException {
+    Path prefix = Paths.get("google", "cloud", "compute", "v1small");
+    Path discoveryDocPath =
+        Paths.get("src", "test", "resources", prefix.toString(), "compute.v1small.json");
+    // The previous Operation message has a field referencing Address, which only the Addresses
+    // service uses.
+    String previousProto =
+        readFile(Paths.get("src", "test", "resources", prefix.toString(), "compute.proto"))
+            .replace(
+                "  optional string client_operation_id = ",
+                "  optional Address legacy_address = 1;\n\n  optional string client_operation_id = ");
+    Path previousProtoPath = outputDir.resolve("previous.proto");
+    Files.write(previousProtoPath, previousProto.getBytes(StandardCharsets.UTF_8));
+    Path generatedFilePath = outputDir.resolve("compute.proto");
+
+    new DiscoToProto3ConverterApp()
+        .convert(
+            new String[] {
+              "--discovery_doc_path=" + discoveryDocPath,
+              "--previous_proto_file_path=" + previousProtoPath,
+              "--output_file_path=" + generatedFilePath,
+              "--service_allowlist=RegionOperations"
+            });
+
+    // The schemas of the previous messages are read too, so the preserved field is kept.
+    String actualBody = readFile(generatedFilePath);
+    assertTrue(actualBody.contains("optional Address legacy_address = "));
+    assertTrue(actualBody.contains("\nmessage Address {\n"));
+    assertFalse(actualBody.contains("\nservice Addresses {\n"));
+  }
+
+  @Test
+  public void validationRejectsUnresolvedReferences() throws IOException {
+    ObjectNode root = SyntheticDocumentGenerator.newBuilder().build().generateJson();
+    ((ObjectNode) root.get("schemas").get("ItemA").get("properties"))
+        .putObject("missing")
+        .put("$ref", "Missing");
+    Path discoveryDocPath = outputDir.resolve("synthetic.v1.json");
+    new ObjectMapper().writeValue(discoveryDocPath.toFile(), root);
+    String[] args = {
+      "--discovery_doc_path=" + discoveryDocPath,
+      "--output_file_path=" + outputDir.resolve("synthetic.proto")
+    };
+
+    // The reference is converted to an empty message unless the output is validated.
+    new DiscoToProto3ConverterApp().convert(args);
+    String[] validatingArgs = Arrays.copyOf(args, args.length + 1);
+    validatingArgs[args.length] = "--validate_descriptors=true";
+    IllegalStateException exception =
+        assertThrows(
+            IllegalStateException.class,
+            () -> new DiscoToProto3ConverterApp().convert(validatingArgs));
+    assertTrue(exception.getMessage(), exception.getMessage().contains("ItemA=[Missing]"));
+  }
+
   @Test
   public void convertAnyFieldWithFormat() throws IOException {
     DiscoToProto3ConverterApp app = new DiscoToProto3ConverterApp();
@@ -876,6 +948,211 @@ public class DiscoToProto3ConverterAppTest {
     assertEquals(baselineBody, actualBody);
   }
 
+  @Test
+  public void convertWithProfile() throws IOException {
+    DiscoToProto3ConverterApp app = new DiscoToProto3ConverterApp();
+    Path prefix = Paths.get("google", "cloud", "compute", "v1small");
+    Path discoveryDocPath =
+        Paths.get("src", "test", "resources", prefix.toString(), "compute.v1small.json");
+    Path generatedFilePath = Paths.get(outputDir.toString(), prefix.toString(), "compute.proto");
+    Path profilePath = Paths.get(outputDir.toString(), prefix.toString(), "profile.json");
+
+    app.convert(
+        new String[] {
+          "--discovery_doc_path=" + discoveryDocPath,
+          "--output_file_path=" + generatedFilePath,
+          "--relative_link_prefix=https://cloud.google.com",
+          "--profile=" + profilePath
+        });
+
+    JsonObject run =
+        JsonParser.parseString(readFile(profilePath))
+            .getAsJsonObject()
+            .getAsJsonArray("runs")
+            .get(0)
+            .getAsJsonObject();
+    assertEquals("Proto3Writer", run.get("name").getAsString());
+    List<String> phaseNames = new ArrayList<>();
+    for (JsonElement phase : run.getAsJsonArray("phases")) {
+      phaseNames.add(phase.getAsJsonObject().get("name").getAsString());
+      assertTrue(phase.getAsJsonObject().get("wallMillis").getAsDouble() >= 0);
+    }
+    assertEquals(
+        Arrays.asList(
+            "readDiscoveryDoc",
+            "parseJson",
+            "documentFrom",
+            "convert.readSchema",
+            "convert.readResources",
+            "convert.sweepMessages",
+            "convert.applyLroConfiguration",
+            "convert.checkAnyFields",
+            "convert.convertEnumFieldsToStrings",
+            "write.Proto3Writer"),
+        phaseNames);
+    JsonObject cardinalities = run.getAsJsonObject("cardinalities");
+    assertEquals(2, cardinalities.get("services").getAsInt());
+    assertTrue(cardinalities.get("messages").getAsInt() > 0);
+
+    // Profiling does not affect the output.
+    Path baselineFilePath =
+        Paths.get("src", "test", "resources", prefix.toString(), "compute.proto.baseline");
+    assertEquals(readFile(baselineFilePath), readFile(generatedFilePath));
+  }
+
+  @Test
+  public void convertWithFootprintReport() throws IOException {
+    DiscoToProto3ConverterApp app = new DiscoToProto3ConverterApp();
+    Path prefix = Paths.get("google", "cloud", "compute", "v1small");
+    Path discoveryDocPath =
+        Paths.get("src", "test", "resources", prefix.toString(), "compute.v1small.json");
+    Path generatedFilePath = Paths.get(outputDir.toString(), prefix.toString(), "compute.proto");
+    Path reportPath = Paths.get(outputDir.toString(), prefix.toString(), "footprint.json");
+
+    app.convert(
+        new String[] {
+          "--discovery_doc_path=" + discoveryDocPath,
+          "--output_file_path=" + generatedFilePath,
+          "--relative_link_prefix=https://cloud.google.com",
+          "--footprint_report=" + reportPath
+        });
+
+    JsonObject report = JsonParser.parseString(readFile(reportPath)).getAsJsonObject();
+    JsonObject categories = report.getAsJsonObject("categories");
+    for (String category :
+        Arrays.asList("messages", "fields", "optionProperties", "descriptions", "schemas")) {
+      JsonObject sizes = categories.getAsJsonObject(category);
+      assertTrue(category, sizes.get("count").getAsLong() > 0);
+      assertTrue(category, sizes.get("shallowBytes").getAsLong() > 0);
+      assertTrue(
+          category,
+          sizes.get("retainedBytes").getAsLong() >= sizes.get("shallowBytes").getAsLong());
+    }
+    // The parsed JSON tree is not retained by the Discovery document.
+    assertEquals(0, categories.getAsJsonObject("discoveryNodes").get("count").getAsLong());
+
+    long previousSize = Long.MAX_VALUE;
+    for (JsonElement message : report.getAsJsonArray("topMessages")) {
+      long size = message.getAsJsonObject().get("retainedBytes").getAsLong();
+      assertTrue(size > 0 && size <= previousSize);
+      previousSize = size;
+    }
+
+    // Reporting the footprint does not affect the output.
+    Path baselineFilePath =
+        Paths.get("src", "test", "resources", prefix.toString(), "compute.proto.baseline");
+    assertEquals(readFile(baselineFilePath), readFile(generatedFilePath));
+  }
+
+  @Test
+  public void convertWithFlightRecording() throws IOException {
+    DiscoToProto3ConverterApp app = new DiscoToProto3ConverterApp();
+    Path prefix = Paths.get("google", "cloud", "compute", "v1small");
+    Path discoveryDocPath =
+        Paths.get("src", "test", "resources", prefix.toString(), "compute.v1small.json");
+    Path previousProtoPath =
+        Paths.get("src", "test", "resources", prefix.toString(), "compute.proto");
+    Path generatedFilePath = Paths.get(outputDir.toString(), prefix.toString(), "compute.proto");
+    Path recordingPath = Paths.get(outputDir.toString(), prefix.toString(), "converter.jfr");
+
+    List<String> eventNames =
+        Arrays.asList(
+            "SchemaConversion",
+            "NameConversion",
+            "MessageCollisionCheck",
+            "LroMatching",
+            "ProtoParse",
+            "ProtoMerge",
+            "WriterFlush");
+    Map<String, Integer> eventCounts = new HashMap<>();
+    try (Recording recording = new Recording()) {
+      for (String eventName : eventNames) {
+        recording.enable("com.google.cloud.discotoproto3converter." + eventName);
+      }
+      recording.start();
+      app.convert(
+          discoveryDocPath.toString(),
+          previousProtoPath.toString(),
+          generatedFilePath.toString(),
+          "",
+          "",
+          "https://cloud.google.com",
+          "false",
+          "true");
+      recording.stop();
+      recording.dump(recordingPath);
+    }
+    for (RecordedEvent event : RecordingFile.readAllEvents(recordingPath)) {
+      eventCounts.merge(event.getEventType().getName(), 1, Integer::sum);
+    }
+
+    for (String eventName : eventNames) {
+      assertTrue(
+          eventName,
+          eventCounts.containsKey("com.google.cloud.discotoproto3converter." + eventName));
+    }
+    // One LRO initiating method in each of the two services.
+    assertEquals(
+        Integer.valueOf(2), eventCounts.get("com.google.cloud.discotoproto3converter.LroMatching"));
+  }
+
+  @Test
+  public void hermeticConversionIsReproducible() throws IOException, InterruptedException {
+    // Each conversion runs in its own JVM, as identity hash codes (e.g. those of enums) differ
+    // between JVM runs but not within one. The second JVM generates them differently, so that
+    // outputs depending on them differ even if the JVM would happen to generate the same ones.
+    Path prefix = Paths.get("google", "cloud", "compute", "v1small");
+    Path discoveryDocPath =
+        Paths.get("src", "test", "resources", prefix.toString(), "compute.v1small.json");
+    Path inputConfigPath =
+        Paths.get("src", "test", "resources", prefix.toString(), "compute.v1small.config.in.json");
+    List<Path> outputDirs = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Path runDir = outputDir.resolve("run" + i);
+      List<String> command = new ArrayList<>();
+      command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+      if (i > 0) {
+        command.addAll(
+            Arrays.asList(
+                "-XX:+IgnoreUnrecognizedVMOptions",
+                "-XX:+UnlockExperimentalVMOptions",
+                "-XX:hashCode=2"));
+      }
+      command.addAll(
+          Arrays.asList(
+              "-cp",
+              System.getProperty("java.class.path"),
+              DiscoToProto3ConverterApp.class.getName(),
+              "--discovery_doc_path=" + discoveryDocPath,
+              "--input_config_path=" + inputConfigPath,
+              "--output_file_path=" + runDir.resolve("compute.proto"),
+              "--output_config_path=" + runDir.resolve("compute.config.json"),
+              "--output_descriptor_set_path=" + runDir.resolve("compute.desc"),
+              "--hermetic=true"));
+      Process process =
+          new ProcessBuilder(command)
+              .redirectErrorStream(true)
+              .redirectOutput(ProcessBuilder.Redirect.appendTo(outputDir.resolve("log").toFile()))
+              .start();
+      assertEquals(0, process.waitFor());
+      outputDirs.add(runDir);
+    }
+
+    for (String fileName : Arrays.asList("compute.proto", "compute.config.json", "compute.desc")) {
+      assertTrue(
+          fileName,
+          Arrays.equals(
+              Files.readAllBytes(outputDirs.get(0).resolve(fileName)),
+              Files.readAllBytes(outputDirs.get(1).resolve(fileName))));
+    }
+    JsonObject config =
+        JsonParser.parseString(readFile(outputDirs.get(0).resolve("compute.config.json")))
+            .getAsJsonObject();
+    // The time stamp is the date of the Discovery revision.
+    assertEquals("2020-03-02T00:00:00Z", config.get("updateTime").getAsString());
+    assertEquals("", config.get("converterVersion").getAsString());
+  }
+
   private static String readFile(Path path) throws IOException {
     return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
   }
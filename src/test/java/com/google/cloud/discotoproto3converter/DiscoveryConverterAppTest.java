@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiscoveryConverterAppTest {
+  private Path outputDir;
+
+  @Before
+  public void setUp() throws IOException {
+    outputDir = Files.createTempDirectory("disco-to-proto3-converter");
+    outputDir.toFile().deleteOnExit();
+  }
+
+  @Test
+  public void convert() throws IOException {
+    Path prefix = Paths.get("google", "cloud", "compute", "v1small");
+    Path resourceDir = Paths.get("src", "test", "resources", prefix.toString());
+    Path generatedDir = outputDir.resolve(prefix);
+
+    DiscoveryConverterApp.main(
+        new String[] {
+          "--discovery_doc_path=" + resourceDir.resolve("compute.v1small.json"),
+          "--output_file_path=" + generatedDir.resolve("compute"),
+          "--relative_link_prefix=https://cloud.google.com"
+        });
+
+    // A single conversion writes the same files as the individual apps.
+    for (String fileName :
+        new String[] {"compute.proto", "compute_grpc_service_config.json", "compute_gapic.yaml"}) {
+      assertEquals(
+          readFile(resourceDir.resolve(fileName + ".baseline")),
+          readFile(generatedDir.resolve(fileName)));
+    }
+  }
+
+  private static String readFile(Path path) throws IOException {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+}
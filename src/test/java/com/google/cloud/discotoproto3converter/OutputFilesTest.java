@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+public class OutputFilesTest {
+  private static final byte[] CONTENT = "syntax = \"proto3\";\n".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void writesOnlyChangedFiles() throws IOException {
+    Path dir = Files.createTempDirectory("disco-to-proto3-converter-output");
+    Path path = dir.resolve("nested").resolve("out.proto");
+
+    assertTrue(OutputFiles.writeIfChanged(path, CONTENT));
+    assertArrayEquals(CONTENT, Files.readAllBytes(path));
+
+    // An unchanged file is not touched.
+    FileTime past = FileTime.fromMillis(1000000000000L);
+    Files.setLastModifiedTime(path, past);
+    assertFalse(OutputFiles.writeIfChanged(path, CONTENT));
+    assertEquals(past, Files.getLastModifiedTime(path));
+
+    // A changed file of the same size is replaced.
+    byte[] changed = Arrays.copyOf(CONTENT, CONTENT.length);
+    changed[0] = 'S';
+    assertTrue(OutputFiles.writeIfChanged(path, changed));
+    assertArrayEquals(changed, Files.readAllBytes(path));
+    assertFalse(past.equals(Files.getLastModifiedTime(path)));
+
+    // No temporary files are left behind.
+    try (Stream<Path> files = Files.list(path.getParent())) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  public void reportsChangedFiles() throws IOException {
+    Path dir = Files.createTempDirectory("disco-to-proto3-converter-output");
+    Path unchanged = dir.resolve("unchanged.proto");
+    Path changed = dir.resolve("changed.proto");
+    Files.write(unchanged, CONTENT);
+
+    OutputFiles outputFiles = new OutputFiles();
+    outputFiles.write(unchanged, CONTENT);
+    outputFiles.write(changed, CONTENT);
+    assertEquals(2, outputFiles.size());
+    assertEquals(Collections.singletonList(changed), outputFiles.getChangedFiles());
+  }
+}
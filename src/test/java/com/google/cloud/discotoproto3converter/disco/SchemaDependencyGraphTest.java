@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.disco;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class SchemaDependencyGraphTest {
+  // A and B reference each other, C references itself and (through an inline schema) D, and E
+  // references an undefined schema in a map.
+  private static final String DOCUMENT =
+      "{'name': 'test', 'version': 'v1', 'schemas': {"
+          + "  'A': {'id': 'A', 'type': 'object', 'properties': {"
+          + "    'b': {'$ref': 'B'},"
+          + "    'cs': {'type': 'array', 'items': {'$ref': 'C'}}}},"
+          + "  'B': {'id': 'B', 'type': 'object', 'properties': {'a': {'$ref': 'A'}}},"
+          + "  'C': {'id': 'C', 'type': 'object', 'properties': {"
+          + "    'self': {'$ref': 'C'},"
+          + "    'nested': {'type': 'object', 'properties': {'d': {'$ref': 'D'}}}}},"
+          + "  'D': {'id': 'D', 'type': 'object', 'properties': {'x': {'type': 'string'}}},"
+          + "  'E': {'id': 'E', 'type': 'object', 'properties': {"
+          + "    'm': {'type': 'object', 'additionalProperties': {'$ref': 'Missing'}}}},"
+          + "  'F': {'id': 'F', 'type': 'object', 'properties': {'d': {'$ref': 'D'}}}},"
+          + "'resources': {'things': {'methods': {"
+          + "  'get': {'id': 'test.things.get', 'httpMethod': 'GET', 'path': 'things/{thing}',"
+          + "    'response': {'$ref': 'A'}},"
+          + "  'insert': {'id': 'test.things.insert', 'httpMethod': 'POST', 'path': 'things',"
+          + "    'request': {'$ref': 'D'}, 'response': {'$ref': 'Gone'}}}}}}";
+
+  @Test
+  public void dependencies() throws IOException {
+    SchemaDependencyGraph graph = graph(DOCUMENT);
+    assertEquals(Arrays.asList("A", "B", "C", "D", "E", "F"), graph.schemas());
+    assertEquals(Arrays.asList("B", "C"), graph.dependencies("A"));
+    assertEquals(Arrays.asList("C", "D"), graph.dependencies("C"));
+    assertEquals(Collections.emptyList(), graph.dependencies("E"));
+    assertEquals(Arrays.asList("C", "F"), graph.dependents("D"));
+    assertEquals(ImmutableSet.of("A", "D"), graph.roots());
+    assertThrows(IllegalArgumentException.class, () -> graph.dependencies("Missing"));
+  }
+
+  @Test
+  public void danglingReferences() throws IOException {
+    assertEquals(
+        ImmutableMap.of(
+            "E", ImmutableSet.of("Missing"), "test.things.insert", ImmutableSet.of("Gone")),
+        graph(DOCUMENT).danglingReferences());
+  }
+
+  @Test
+  public void components() throws IOException {
+    SchemaDependencyGraph graph = graph(DOCUMENT);
+    List<List<String>> expected =
+        Arrays.asList(
+            Collections.singletonList("D"),
+            Collections.singletonList("C"),
+            Arrays.asList("A", "B"),
+            Collections.singletonList("E"),
+            Collections.singletonList("F"));
+    assertEquals(expected, graph.components());
+    assertEquals(Arrays.asList("D", "C", "A", "B", "E", "F"), graph.topologicalOrder());
+    assertTrue(graph.isRecursive("A"));
+    assertTrue(graph.isRecursive("B"));
+    assertTrue(graph.isRecursive("C"));
+    assertFalse(graph.isRecursive("D"));
+  }
+
+  @Test
+  public void reachableFrom() throws IOException {
+    SchemaDependencyGraph graph = graph(DOCUMENT);
+    assertEquals(ImmutableSet.of("A", "B", "C", "D"), graph.reachableFrom(graph.roots()));
+    assertEquals(ImmutableSet.of("D", "F"), graph.reachableFrom(Collections.singleton("F")));
+  }
+
+  @Test
+  public void topologicalOrderOfSyntheticDocument() {
+    Document document =
+        SyntheticDocumentGenerator.newBuilder()
+            .setSchemas(200)
+            .setRefFanIn(3)
+            .build()
+            .generateDocument();
+    SchemaDependencyGraph graph = document.dependencyGraph();
+    assertSame(graph, document.dependencyGraph());
+    assertTrue(graph.danglingReferences().isEmpty());
+
+    List<String> order = graph.topologicalOrder();
+    assertEquals(document.schemas().size(), order.size());
+    for (String schema : order) {
+      for (String dependency : graph.dependencies(schema)) {
+        assertTrue(
+            schema + " comes before its dependency " + dependency,
+            order.indexOf(dependency) < order.indexOf(schema));
+      }
+    }
+  }
+
+  private static SchemaDependencyGraph graph(String json) throws IOException {
+    return Document.from(new DiscoveryNode(new ObjectMapper().readTree(json.replace('\'', '"'))))
+        .dependencyGraph();
+  }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.disco;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.auto.value.AutoValue;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A generator of synthetic (but valid) Discovery documents of configurable size and shape, for
+ * measuring how the conversion scales beyond the few real documents available.
+ *
+ * <p>The generated documents are deterministic: the same parameters always produce the same
+ * document. Their structure follows the patterns of compute.v1: schemas with scalar, enum,
+ * repeated, map, nested and referenced properties; resources with the standard methods
+ * (get/list/insert/delete/patch/update) followed by custom ones; and, optionally, LRO polling
+ * services (global, regional, zonal and then further location scopes) matched by the mutating
+ * methods of the resources with the same scope.
+ */
+@AutoValue
+public abstract class SyntheticDocumentGenerator {
+  private static final String CLOUD_PLATFORM_SCOPE =
+      "https://www.googleapis.com/auth/cloud-platform";
+  private static final List<String> STANDARD_METHODS =
+      Arrays.asList("get", "list", "insert", "delete", "patch", "update");
+  private static final List<String> SCOPES = Arrays.asList("global", "region", "zone");
+  private static final int NO_LRO_SCOPES = 3;
+  private static final int PROPERTY_KINDS = 8;
+
+  /** The number of schemas, not counting the Operation schema. */
+  public abstract int schemas();
+
+  public abstract int resources();
+
+  /** The number of methods of each resource; the standard methods come first. */
+  public abstract int methodsPerResource();
+
+  /** The number of properties of each schema, not counting its nested and referenced schemas. */
+  public abstract int propertiesPerSchema();
+
+  /** The number of levels of inline object schemas nested in each schema. */
+  public abstract int nestingDepth();
+
+  /** The number of values of each enum property. */
+  public abstract int enumSize();
+
+  /**
+   * The number of schemas referencing each schema (through a {@code $ref} property), or 0 for no
+   * references at all.
+   */
+  public abstract int refFanIn();
+
+  /**
+   * The number of LRO polling services (global, regional, zonal and then other location scopes, in
+   * this order); when 0 there is no Operation schema and the mutating methods return their
+   * resource's schema.
+   */
+  public abstract int operationPollingServices();
+
+  /**
+   * Whether the custom methods of each resource all take their resource's schema as the request
+   * body, instead of different schemas.
+   */
+  public abstract boolean customMethodsShareRequest();
+
+  public abstract Builder toBuilder();
+
+  /** Returns a builder of a generator of a small document with every feature present. */
+  public static Builder newBuilder() {
+    return new AutoValue_SyntheticDocumentGenerator.Builder()
+        .setSchemas(20)
+        .setResources(4)
+        .setMethodsPerResource(7)
+        .setPropertiesPerSchema(8)
+        .setNestingDepth(2)
+        .setEnumSize(4)
+        .setRefFanIn(2)
+        .setOperationPollingServices(3)
+        .setCustomMethodsShareRequest(false);
+  }
+
+  /**
+   * Returns a generator of a document shaped like compute.v1, with its numbers of schemas and
+   * resources multiplied by the given scale (e.g. 10 for a document ten times the size of
+   * compute.v1).
+   */
+  public static SyntheticDocumentGenerator computeLike(double scale) {
+    return newBuilder()
+        .setSchemas(Math.max(1, (int) Math.round(560 * scale)))
+        .setResources(Math.max(1, (int) Math.round(82 * scale)))
+        .setMethodsPerResource(7)
+        .setPropertiesPerSchema(5)
+        .setNestingDepth(1)
+        .setEnumSize(13)
+        .setRefFanIn(2)
+        .setOperationPollingServices(3)
+        .build();
+  }
+
+  /** Returns the generated document as a parsed Discovery document. */
+  public Document generateDocument() {
+    return Document.from(new DiscoveryNode(generateJson()));
+  }
+
+  /** Returns the generated document as (pretty-printed) JSON text. */
+  public String generate() {
+    try {
+      return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(generateJson());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Returns the generated document as a JSON tree. */
+  public ObjectNode generateJson() {
+    ObjectNode root = JsonNodeFactory.instance.objectNode();
+    root.put("kind", "discovery#restDescription");
+    root.put("discoveryVersion", "v1");
+    root.put("id", "synthetic:v1");
+    root.put("name", "synthetic");
+    root.put("version", "v1");
+    root.put("revision", "20260101");
+    root.put("title", "Synthetic API");
+    root.put("description", "A synthetic API generated for scaling benchmarks.");
+    root.put("ownerDomain", "google.com");
+    root.put("ownerName", "Google");
+    root.put("protocol", "rest");
+    root.put("baseUrl", "https://synthetic.googleapis.com/synthetic/v1/");
+    root.put("basePath", "/synthetic/v1/");
+    root.put("rootUrl", "https://synthetic.googleapis.com/");
+    root.put("servicePath", "synthetic/v1/");
+    root.put("batchPath", "batch/synthetic/v1");
+    root.withObjectProperty("auth")
+        .withObjectProperty("oauth2")
+        .withObjectProperty("scopes")
+        .withObjectProperty(CLOUD_PLATFORM_SCOPE)
+        .put("description", "View and manage your data across Google Cloud Platform services");
+
+    ObjectNode schemas = root.withObjectProperty("schemas");
+    if (operationPollingServices() > 0) {
+      schemas.set("Operation", operationSchema());
+    }
+    for (int i = 0; i < schemas(); i++) {
+      schemas.set(schemaName(i), schema(i));
+    }
+
+    ObjectNode resources = root.withObjectProperty("resources");
+    for (int i = 0; i < operationPollingServices(); i++) {
+      String resourceName = (i == 0 ? SCOPES.get(0) : scopeParameter(i)) + "Operations";
+      ObjectNode getMethod = method(resourceName, "get", "GET", i, "/{operation}");
+      getMethod.withObjectProperty("parameters").set("operation", stringParameter("path", true));
+      getMethod.withArrayProperty("parameterOrder").add("operation");
+      getMethod.withObjectProperty("response").put("$ref", "Operation");
+      resources
+          .withObjectProperty(resourceName)
+          .withObjectProperty("methods")
+          .set("get", getMethod);
+    }
+    for (int i = 0; i < resources(); i++) {
+      resources.set(resourceName(i), resource(i));
+    }
+    return root;
+  }
+
+  private ObjectNode schema(int index) {
+    String name = schemaName(index);
+    ObjectNode schema = JsonNodeFactory.instance.objectNode();
+    schema.put("id", name);
+    schema.put("type", "object");
+    schema.put("description", "A synthetic resource " + name + ".");
+    ObjectNode properties = schema.withObjectProperty("properties");
+    for (int i = 0; i < propertiesPerSchema(); i++) {
+      properties.set("field" + letters(i), property((index + i) % PROPERTY_KINDS, i));
+    }
+
+    // Schema i references schema (i - 1) / refFanIn(), so that every schema is referenced by
+    // refFanIn() schemas following it, and references never form cycles.
+    if (refFanIn() > 0 && index > 0) {
+      int referenced = (index - 1) / refFanIn();
+      ObjectNode ref = JsonNodeFactory.instance.objectNode();
+      ref.put("description", "A reference to " + schemaName(referenced) + ".");
+      if (index % 2 == 0) {
+        ref.put("type", "array");
+        ref.withObjectProperty("items").put("$ref", schemaName(referenced));
+      } else {
+        ref.put("$ref", schemaName(referenced));
+      }
+      properties.set("ref" + letters(referenced), ref);
+    }
+
+    ObjectNode parent = schema;
+    for (int level = 0; level < nestingDepth(); level++) {
+      // Inline schemas are converted to top-level messages named after the property, so the
+      // property names are unique across schemas.
+      ObjectNode nested = JsonNodeFactory.instance.objectNode();
+      nested.put("type", "object");
+      nested.put("description", "A nested object of " + name + ".");
+      nested.withObjectProperty("properties").set("value", property(0, 0));
+      nested.withObjectProperty("properties").set("count", property(1, 1));
+      parent
+          .withObjectProperty("properties")
+          .set("nested" + letters(index) + "Level" + letters(level), nested);
+      parent = nested;
+    }
+    return schema;
+  }
+
+  private ObjectNode property(int kind, int index) {
+    ObjectNode property = JsonNodeFactory.instance.objectNode();
+    property.put("description", "A synthetic property.");
+    switch (kind) {
+      case 1:
+        property.put("type", "integer");
+        property.put("format", "int32");
+        break;
+      case 2:
+        property.put("type", "string");
+        property.put("format", "int64");
+        break;
+      case 3:
+        property.put("type", "boolean");
+        break;
+      case 4:
+        property.put("type", "number");
+        property.put("format", "double");
+        break;
+      case 5:
+        property.put("type", "string");
+        if (enumSize() > 0) {
+          ArrayNode values = property.withArrayProperty("enum");
+          ArrayNode descriptions = property.withArrayProperty("enumDescriptions");
+          for (int i = 0; i < enumSize(); i++) {
+            values.add("VALUE_" + letters(index).toUpperCase() + "_" + letters(i).toUpperCase());
+            descriptions.add("");
+          }
+        }
+        break;
+      case 6:
+        property.put("type", "array");
+        property.withObjectProperty("items").put("type", "string");
+        break;
+      case 7:
+        property.put("type", "object");
+        property.withObjectProperty("additionalProperties").put("type", "string");
+        break;
+      default:
+        property.put("type", "string");
+        break;
+    }
+    return property;
+  }
+
+  private ObjectNode operationSchema() {
+    ObjectNode schema = JsonNodeFactory.instance.objectNode();
+    schema.put("id", "Operation");
+    schema.put("type", "object");
+    schema.put("description", "Represents an Operation resource.");
+    ObjectNode properties = schema.withObjectProperty("properties");
+    properties.set("name", property(0, 0));
+    properties.set("id", property(2, 0));
+    properties.set("httpErrorMessage", property(0, 0));
+    properties.set("httpErrorStatusCode", property(1, 0));
+    ObjectNode status = property(0, 0);
+    status.withArrayProperty("enum").add("DONE").add("PENDING").add("RUNNING");
+    status.withArrayProperty("enumDescriptions").add("").add("").add("");
+    properties.set("status", status);
+
+    ObjectNode error = properties.withObjectProperty("error");
+    error.put("type", "object");
+    ObjectNode errors = error.withObjectProperty("properties").withObjectProperty("errors");
+    errors.put("type", "array");
+    ObjectNode errorItem = errors.withObjectProperty("items");
+    errorItem.put("type", "object");
+    errorItem.withObjectProperty("properties").set("code", property(0, 0));
+    errorItem.withObjectProperty("properties").set("message", property(0, 0));
+    return schema;
+  }
+
+  private ObjectNode resource(int index) {
+    String resourceName = resourceName(index);
+    String schemaName = schemaName(index % schemas());
+    // With LRO, the resources of each scope poll the Operation through the polling service of
+    // that scope.
+    int scope =
+        index % (operationPollingServices() > 0 ? operationPollingServices() : NO_LRO_SCOPES);
+    String idParameter = resourceName + "Id";
+    boolean lro = operationPollingServices() > 0;
+
+    ObjectNode methods = JsonNodeFactory.instance.objectNode();
+    for (int i = 0; i < methodsPerResource(); i++) {
+      String methodName =
+          i < STANDARD_METHODS.size()
+              ? STANDARD_METHODS.get(i)
+              : "action" + letters(i - STANDARD_METHODS.size());
+      ObjectNode method;
+      switch (methodName) {
+        case "get":
+          method = method(resourceName, methodName, "GET", scope, "/{" + idParameter + "}");
+          addIdParameter(method, idParameter);
+          method.withObjectProperty("response").put("$ref", schemaName);
+          break;
+        case "list":
+          method = method(resourceName, methodName, "GET", scope, "");
+          method.withObjectProperty("parameters").set("filter", stringParameter("query", false));
+          method.withObjectProperty("parameters").set("pageToken", stringParameter("query", false));
+          ObjectNode maxResults = stringParameter("query", false);
+          maxResults.put("type", "integer");
+          maxResults.put("format", "uint32");
+          method.withObjectProperty("parameters").set("maxResults", maxResults);
+          method.withObjectProperty("response").put("$ref", schemaName);
+          break;
+        case "insert":
+          method = method(resourceName, methodName, "POST", scope, "");
+          method.withObjectProperty("request").put("$ref", schemaName);
+          break;
+        case "delete":
+          method = method(resourceName, methodName, "DELETE", scope, "/{" + idParameter + "}");
+          addIdParameter(method, idParameter);
+          break;
+        case "patch":
+        case "update":
+          String httpMethod = "patch".equals(methodName) ? "PATCH" : "PUT";
+          method = method(resourceName, methodName, httpMethod, scope, "/{" + idParameter + "}");
+          addIdParameter(method, idParameter);
+          method.withObjectProperty("request").put("$ref", schemaName);
+          break;
+        default:
+          method =
+              method(
+                  resourceName, methodName, "POST", scope, "/{" + idParameter + "}/" + methodName);
+          addIdParameter(method, idParameter);
+          method
+              .withObjectProperty("request")
+              .put(
+                  "$ref",
+                  customMethodsShareRequest() ? schemaName : schemaName((index + i) % schemas()));
+          break;
+      }
+      if (!method.has("response")) {
+        method.withObjectProperty("parameters").set("requestId", stringParameter("query", false));
+        method.withObjectProperty("response").put("$ref", lro ? "Operation" : schemaName);
+      }
+      methods.set(methodName, method);
+    }
+
+    ObjectNode resource = JsonNodeFactory.instance.objectNode();
+    resource.set("methods", methods);
+    return resource;
+  }
+
+  // Returns a method with the path parameters of the given scope, and a path (below the resource)
+  // ending with the given suffix.
+  private ObjectNode method(
+      String resourceName, String methodName, String httpMethod, int scope, String pathSuffix) {
+    ObjectNode method = JsonNodeFactory.instance.objectNode();
+    method.put("id", "synthetic." + resourceName + "." + methodName);
+    method.put("httpMethod", httpMethod);
+    method.put("description", "The " + methodName + " method of " + resourceName + ".");
+
+    StringBuilder path = new StringBuilder("projects/{project}");
+    ObjectNode parameters = method.withObjectProperty("parameters");
+    ArrayNode parameterOrder = method.withArrayProperty("parameterOrder");
+    parameters.set("project", stringParameter("path", true));
+    parameterOrder.add("project");
+    if (scope == 0) {
+      path.append("/global");
+    } else {
+      String scopeParameter = scopeParameter(scope);
+      path.append("/").append(scopeParameter).append("s/{").append(scopeParameter).append("}");
+      parameters.set(scopeParameter, stringParameter("path", true));
+      parameterOrder.add(scopeParameter);
+    }
+    path.append("/").append(resourceName).append(pathSuffix);
+    method.put("path", path.toString());
+    method.withArrayProperty("scopes").add(CLOUD_PLATFORM_SCOPE);
+    return method;
+  }
+
+  private static void addIdParameter(ObjectNode method, String idParameter) {
+    method.withObjectProperty("parameters").set(idParameter, stringParameter("path", true));
+    method.withArrayProperty("parameterOrder").add(idParameter);
+  }
+
+  private static ObjectNode stringParameter(String location, boolean required) {
+    ObjectNode parameter = JsonNodeFactory.instance.objectNode();
+    parameter.put("type", "string");
+    parameter.put("description", "A synthetic " + location + " parameter.");
+    if (required) {
+      parameter.put("required", true);
+    }
+    parameter.put("location", location);
+    return parameter;
+  }
+
+  // The path parameter identifying the location of the given (non-global) scope.
+  private static String scopeParameter(int scope) {
+    return scope < SCOPES.size() ? SCOPES.get(scope) : "location" + letters(scope);
+  }
+
+  private static String schemaName(int index) {
+    return "Item" + letters(index);
+  }
+
+  private static String resourceName(int index) {
+    return "collection" + letters(index);
+  }
+
+  // Returns a unique capitalized name for the given index (A, B, ..., Z, Aa, Ab, ...), as digits
+  // would not survive the name conversions unchanged.
+  static String letters(int index) {
+    StringBuilder letters = new StringBuilder();
+    for (int n = index; n >= 0; n = n / 26 - 1) {
+      letters.append((char) ('a' + n % 26));
+    }
+    letters.reverse();
+    letters.setCharAt(0, Character.toUpperCase(letters.charAt(0)));
+    return letters.toString();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    public abstract Builder setSchemas(int val);
+
+    public abstract Builder setResources(int val);
+
+    public abstract Builder setMethodsPerResource(int val);
+
+    public abstract Builder setPropertiesPerSchema(int val);
+
+    public abstract Builder setNestingDepth(int val);
+
+    public abstract Builder setEnumSize(int val);
+
+    public abstract Builder setRefFanIn(int val);
+
+    public abstract Builder setOperationPollingServices(int val);
+
+    public abstract Builder setCustomMethodsShareRequest(boolean val);
+
+    abstract SyntheticDocumentGenerator autoBuild();
+
+    public SyntheticDocumentGenerator build() {
+      SyntheticDocumentGenerator generator = autoBuild();
+      if (generator.schemas() < 1) {
+        throw new IllegalArgumentException("at least one schema is required");
+      }
+      if (generator.resources() < 0
+          || generator.methodsPerResource() < 0
+          || generator.propertiesPerSchema() < 0
+          || generator.nestingDepth() < 0
+          || generator.enumSize() < 0
+          || generator.refFanIn() < 0
+          || generator.operationPollingServices() < 0) {
+        throw new IllegalArgumentException("negative document parameter");
+      }
+      return generator;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.disco;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.discotoproto3converter.proto3.DocumentToProtoConverter;
+import com.google.cloud.discotoproto3converter.proto3.GrpcMethod;
+import com.google.cloud.discotoproto3converter.proto3.GrpcService;
+import com.google.cloud.discotoproto3converter.proto3.Option;
+import com.google.cloud.discotoproto3converter.proto3.Proto3Writer;
+import com.google.cloud.discotoproto3converter.proto3.ProtoFile;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import org.junit.Test;
+
+public class SyntheticDocumentGeneratorTest {
+  private static final String[] POLLING_SERVICES = {
+    "GlobalOperations", "RegionOperations", "ZoneOperations"
+  };
+
+  @Test
+  public void lettersAreUnique() {
+    assertEquals("A", SyntheticDocumentGenerator.letters(0));
+    assertEquals("Z", SyntheticDocumentGenerator.letters(25));
+    assertEquals("Aa", SyntheticDocumentGenerator.letters(26));
+    assertEquals("Zz", SyntheticDocumentGenerator.letters(26 * 27 - 1));
+    assertEquals("Aaa", SyntheticDocumentGenerator.letters(26 * 27));
+  }
+
+  @Test
+  public void generatesConvertibleDocument() {
+    SyntheticDocumentGenerator generator = SyntheticDocumentGenerator.newBuilder().build();
+    Document document = generator.generateDocument();
+    // The schemas and the Operation schema.
+    assertEquals(21, document.schemas().size());
+    // The resources and the global, regional and zonal operations.
+    assertEquals(7, document.resources().size());
+
+    ProtoFile protoFile = convert(document);
+    assertEquals(7, protoFile.getServices().size());
+    int lroMethods = 0;
+    for (GrpcService service : protoFile.getServices().values()) {
+      for (GrpcMethod method : service.getMethods()) {
+        for (Option option : method.getOptions()) {
+          if ("google.cloud.operation_service".equals(option.getName())) {
+            lroMethods++;
+            // Each resource (CollectionA, CollectionB, ...) polls the operations of its own scope.
+            int resourceIndex = service.getName().charAt(service.getName().length() - 1) - 'A';
+            assertEquals(POLLING_SERVICES[resourceIndex % 3], option.getProperties().get(""));
+          }
+        }
+      }
+    }
+    // The insert, delete, patch, update and custom methods of each resource.
+    assertEquals(4 * 5, lroMethods);
+    assertTrue(render(protoFile).contains("map<string, string>"));
+  }
+
+  @Test
+  public void generatesConvertibleDocumentWithoutOptionalFeatures() {
+    SyntheticDocumentGenerator generator =
+        SyntheticDocumentGenerator.newBuilder()
+            .setNestingDepth(0)
+            .setEnumSize(0)
+            .setRefFanIn(0)
+            .setOperationPollingServices(0)
+            .setMethodsPerResource(2)
+            .build();
+    ProtoFile protoFile = convert(generator.generateDocument());
+    assertEquals(4, protoFile.getServices().size());
+    assertTrue(!protoFile.getMessages().containsKey("Operation"));
+  }
+
+  @Test
+  public void generatesSameDocument() {
+    SyntheticDocumentGenerator generator = SyntheticDocumentGenerator.computeLike(0.1);
+    assertEquals(generator.generate(), generator.toBuilder().build().generate());
+    assertEquals(56, generator.generateDocument().schemas().size() - 1);
+  }
+
+  @Test
+  public void rejectsInvalidParameters() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> SyntheticDocumentGenerator.newBuilder().setSchemas(0).build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> SyntheticDocumentGenerator.newBuilder().setOperationPollingServices(-1).build());
+  }
+
+  private static ProtoFile convert(Document document) {
+    return new DocumentToProtoConverter(
+            document,
+            "synthetic.v1.json",
+            Collections.emptySet(),
+            Collections.emptySet(),
+            "https://cloud.google.com",
+            false,
+            null,
+            "")
+        .getProtoFile();
+  }
+
+  private static String render(ProtoFile protoFile) {
+    StringWriter sw = new StringWriter();
+    try (PrintWriter pw = new PrintWriter(sw)) {
+      new Proto3Writer().writeToFile(pw, protoFile, true);
+    }
+    return sw.toString();
+  }
+}
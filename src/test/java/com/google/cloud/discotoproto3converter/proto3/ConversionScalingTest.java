@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.cloud.discotoproto3converter.disco.DiscoveryNode;
+import com.google.cloud.discotoproto3converter.disco.Document;
+import com.google.cloud.discotoproto3converter.disco.SyntheticDocumentGenerator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.junit.Test;
+
+// Checks that the conversion time grows (roughly) linearly with each dimension of the Discovery
+// document, by doubling one dimension of a synthetic document at a time and fitting the slope of
+// the conversion time against the size on a log-log scale: a linear algorithm has a slope of 1, a
+// quadratic one a slope of 2. The maximum slope (1.5 by default) can be set with the
+// "scaling.maxSlope" system property.
+public class ConversionScalingTest {
+  private static final int WARMUP_RUNS = 2;
+  private static final int MEASURED_RUNS = 3;
+
+  @Test
+  public void linearInSchemaCount() {
+    assertLinear(
+        "schemas",
+        250,
+        n -> SyntheticDocumentGenerator.newBuilder().setSchemas(n).setResources(10).build());
+  }
+
+  @Test
+  public void linearInNestingDepth() {
+    assertLinear(
+        "nestingDepth",
+        50,
+        n -> SyntheticDocumentGenerator.newBuilder().setSchemas(20).setNestingDepth(n).build());
+  }
+
+  @Test
+  public void linearInEnumWidth() {
+    assertLinear(
+        "enumSize",
+        250,
+        n -> SyntheticDocumentGenerator.newBuilder().setSchemas(50).setEnumSize(n).build());
+  }
+
+  @Test
+  public void linearInMethodsSharingRequest() {
+    assertLinear(
+        "methodsPerResource",
+        50,
+        n ->
+            SyntheticDocumentGenerator.newBuilder()
+                .setResources(4)
+                .setMethodsPerResource(n)
+                .setCustomMethodsShareRequest(true)
+                .build());
+  }
+
+  @Test
+  public void linearInPollingServices() {
+    assertLinear(
+        "operationPollingServices",
+        16,
+        n ->
+            SyntheticDocumentGenerator.newBuilder()
+                .setResources(64)
+                .setOperationPollingServices(n)
+                .build());
+  }
+
+  @Test
+  public void linearInDescriptionLinks() {
+    assertLinearIn(
+        "relativeLinks",
+        1000,
+        n -> {
+          ObjectNode root =
+              SyntheticDocumentGenerator.newBuilder().setSchemas(1).build().generateJson();
+          StringBuilder description = new StringBuilder();
+          for (int i = 0; i < n; i++) {
+            description.append("See [the docs](/compute/docs/page").append(i).append("). ");
+          }
+          ((ObjectNode) root.get("schemas").get("ItemA"))
+              .put("description", description.toString());
+          return Document.from(new DiscoveryNode(root));
+        });
+  }
+
+  private static void assertLinear(
+      String dimension, int smallest, IntFunction<SyntheticDocumentGenerator> generator) {
+    assertLinearIn(dimension, smallest, n -> generator.apply(n).generateDocument());
+  }
+
+  private static void assertLinearIn(
+      String dimension, int smallest, IntFunction<Document> documents) {
+    double maxSlope = Double.parseDouble(System.getProperty("scaling.maxSlope", "1.5"));
+    List<double[]> points = new ArrayList<>();
+    StringBuilder measurements = new StringBuilder();
+    for (int n = smallest; n <= 8 * smallest; n *= 2) {
+      double millis = measure(documents.apply(n));
+      points.add(new double[] {Math.log(n), Math.log(millis)});
+      measurements.append(String.format("\n  %s=%d: %.1f ms", dimension, n, millis));
+    }
+    double slope = slope(points);
+    assertTrue(
+        String.format(
+            "conversion time grows with %s with a log-log slope of %.2f (maximum %.2f):%s",
+            dimension, slope, maxSlope, measurements),
+        slope <= maxSlope);
+  }
+
+  // Returns the least conversion time of several runs, in milliseconds.
+  private static double measure(Document document) {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+      long start = System.nanoTime();
+      new DocumentToProtoConverter(
+          document,
+          "synthetic.v1.json",
+          Collections.emptySet(),
+          Collections.emptySet(),
+          "https://cloud.google.com",
+          true,
+          null,
+          "");
+      long elapsed = System.nanoTime() - start;
+      if (i >= WARMUP_RUNS) {
+        best = Math.min(best, elapsed);
+      }
+    }
+    return best / 1e6;
+  }
+
+  // The slope of the least squares line fitting the given (x, y) points.
+  private static double slope(List<double[]> points) {
+    double meanX = 0;
+    double meanY = 0;
+    for (double[] point : points) {
+      meanX += point[0] / points.size();
+      meanY += point[1] / points.size();
+    }
+    double covariance = 0;
+    double variance = 0;
+    for (double[] point : points) {
+      covariance += (point[0] - meanX) * (point[1] - meanY);
+      variance += (point[0] - meanX) * (point[0] - meanX);
+    }
+    return covariance / variance;
+  }
+}
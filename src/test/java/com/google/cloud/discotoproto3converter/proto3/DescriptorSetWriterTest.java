@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.AnnotationsProto;
+import com.google.api.ClientProto;
+import com.google.api.FieldBehavior;
+import com.google.api.FieldBehaviorProto;
+import com.google.cloud.ExtendedOperationsProto;
+import com.google.cloud.OperationResponseMapping;
+import com.google.cloud.discotoproto3converter.disco.SyntheticDocumentGenerator;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.Descriptors.MethodDescriptor;
+import com.google.protobuf.Descriptors.ServiceDescriptor;
+import com.google.protobuf.ExtensionRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class DescriptorSetWriterTest {
+  @Test
+  public void buildsValidDescriptors() throws IOException, DescriptorValidationException {
+    ProtoFile protoFile = convert(false);
+    FileDescriptor file = build(protoFile);
+
+    assertEquals("google/cloud/synthetic/v1/synthetic.proto", file.getName());
+    assertEquals("google.cloud.synthetic.v1", file.getPackage());
+    assertEquals("com.google.cloud.synthetic.v1", file.getOptions().getJavaPackage());
+    assertEquals(protoFile.getServices().size(), file.getServices().size());
+    int messageCount = 0;
+    for (Message message : protoFile.getMessages().values()) {
+      messageCount += message.isEnum() ? 0 : 1;
+    }
+    assertEquals(messageCount, file.getMessageTypes().size());
+
+    // Field numbers, types and behaviors.
+    for (Message message : protoFile.getMessages().values()) {
+      Descriptor descriptor = file.findMessageTypeByName(message.getName());
+      for (Map.Entry<Integer, Field> entry : message.getFieldsWithNumbers().entrySet()) {
+        FieldDescriptor field = descriptor.findFieldByName(entry.getValue().getName());
+        assertEquals((int) entry.getKey(), field.getNumber());
+        assertEquals(entry.getValue().getKeyType() != null, field.isMapField());
+        assertEquals(
+            entry.getValue().isOptional() && !entry.getValue().isRepeated(),
+            field.toProto().getProto3Optional());
+      }
+    }
+    Descriptor item = file.findMessageTypeByName("ItemA");
+    FieldDescriptor enumField = item.findFieldByName("field_f");
+    assertEquals(FieldDescriptor.Type.ENUM, enumField.getType());
+    assertEquals("google.cloud.synthetic.v1.ItemA.FieldF", enumField.getEnumType().getFullName());
+    assertEquals(411552411, enumField.getEnumType().findValueByName("VALUE_F_B").getNumber());
+    assertTrue(item.findFieldByName("field_h").isMapField());
+    assertEquals("fieldH", item.findFieldByName("field_h").getJsonName());
+
+    ServiceDescriptor service = file.findServiceByName("CollectionA");
+    assertEquals(
+        "synthetic.googleapis.com", service.getOptions().getExtension(ClientProto.defaultHost));
+    MethodDescriptor insert = service.findMethodByName("Insert");
+    assertEquals("InsertCollectionARequest", insert.getInputType().getName());
+    assertEquals(
+        "item_a_resource", insert.getOptions().getExtension(AnnotationsProto.http).getBody());
+    assertEquals(
+        "/synthetic/v1/projects/{project}/global/collectionA",
+        insert.getOptions().getExtension(AnnotationsProto.http).getPost());
+    assertEquals(
+        "GlobalOperations",
+        insert.getOptions().getExtension(ExtendedOperationsProto.operationService));
+    assertEquals(
+        Collections.singletonList("project,item_a_resource"),
+        insert.getOptions().getExtension(ClientProto.methodSignature));
+    FieldDescriptor body = insert.getInputType().findFieldByName("item_a_resource");
+    assertEquals(
+        Collections.singletonList(FieldBehavior.REQUIRED),
+        body.getOptions().getExtension(FieldBehaviorProto.fieldBehavior));
+
+    Descriptor operation = file.findMessageTypeByName("Operation");
+    assertEquals(
+        OperationResponseMapping.NAME,
+        operation
+            .findFieldByName("name")
+            .getOptions()
+            .getExtension(ExtendedOperationsProto.operationField));
+  }
+
+  @Test
+  public void buildsValidDescriptorsWithEnumsAsStrings()
+      throws IOException, DescriptorValidationException {
+    FileDescriptor file = build(convert(true));
+    Descriptor item = file.findMessageTypeByName("ItemA");
+    assertEquals(FieldDescriptor.Type.STRING, item.findFieldByName("field_f").getType());
+    assertEquals("FieldF", item.getEnumTypes().get(0).getName());
+  }
+
+  @Test
+  public void jsonAndMapEntryNames() {
+    assertEquals("creationTimestamp", DescriptorSetWriter.getJsonName("creation_timestamp"));
+    assertEquals("labels", DescriptorSetWriter.getJsonName("labels"));
+    assertEquals("IPAddress", DescriptorSetWriter.getJsonName("_i_p_address"));
+    assertEquals("LabelsEntry", DescriptorSetWriter.getMapEntryName("labels"));
+    assertEquals("ScopedListEntry", DescriptorSetWriter.getMapEntryName("scoped_list"));
+  }
+
+  // Writes and reads back the descriptor set, and builds the descriptor of the converted file from
+  // it, which checks that all its references are resolved.
+  private static FileDescriptor build(ProtoFile protoFile)
+      throws IOException, DescriptorValidationException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    new DescriptorSetWriter().writeTo(os, protoFile, "synthetic.proto");
+    ExtensionRegistry registry = ExtensionRegistry.newInstance();
+    AnnotationsProto.registerAllExtensions(registry);
+    ClientProto.registerAllExtensions(registry);
+    FieldBehaviorProto.registerAllExtensions(registry);
+    ExtendedOperationsProto.registerAllExtensions(registry);
+    FileDescriptorSet descriptorSet = FileDescriptorSet.parseFrom(os.toByteArray(), registry);
+
+    Map<String, FileDescriptor> files = new HashMap<>();
+    FileDescriptor file = null;
+    for (FileDescriptorProto fileProto : descriptorSet.getFileList()) {
+      FileDescriptor[] dependencies = new FileDescriptor[fileProto.getDependencyCount()];
+      for (int i = 0; i < dependencies.length; i++) {
+        // The dependencies come first.
+        dependencies[i] = files.get(fileProto.getDependency(i));
+      }
+      file = FileDescriptor.buildFrom(fileProto, dependencies);
+      files.put(file.getName(), file);
+    }
+    return file;
+  }
+
+  private static ProtoFile convert(boolean enumsAsStrings) {
+    return new DocumentToProtoConverter(
+            SyntheticDocumentGenerator.newBuilder().build().generateDocument(),
+            "synthetic.v1.json",
+            Collections.emptySet(),
+            Collections.emptySet(),
+            "https://cloud.google.com",
+            enumsAsStrings,
+            null,
+            "")
+        .getProtoFile();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.cloud.discotoproto3converter.disco.SyntheticDocumentGenerator;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class DescriptorValidatorTest {
+  @Test
+  public void validatesConvertedFile() {
+    ProtoFile protoFile = convert();
+    FileDescriptor file = DescriptorValidator.validate(protoFile, "synthetic.proto");
+    assertEquals("google/cloud/synthetic/v1/synthetic.proto", file.getName());
+    assertEquals(protoFile.getServices().size(), file.getServices().size());
+  }
+
+  @Test
+  public void reportsAllScopingAndJsonNameProblems() {
+    ProtoFile protoFile = convert();
+    Message item = protoFile.getMessages().get("ItemA");
+    // Enum values are siblings of their enum, so two enums of a message can't share a value.
+    Message firstEnum = new Message("FirstEnum", false, true, null);
+    firstEnum
+        .getFields()
+        .add(new Field("UNDEFINED_FIRST_ENUM", null, false, false, null, null, true));
+    firstEnum.getFields().add(new Field("SHARED", null, false, false, null, null, false));
+    Message secondEnum = new Message("SecondEnum", false, true, null);
+    secondEnum
+        .getFields()
+        .add(new Field("UNDEFINED_SECOND_ENUM", null, false, false, null, null, true));
+    secondEnum.getFields().add(new Field("SHARED", null, false, false, null, null, false));
+    item.getEnums().add(firstEnum);
+    item.getEnums().add(secondEnum);
+    // Both fields have the JSON name "fieldZ".
+    Message string = Message.PRIMITIVES.get("string");
+    item.getFields().add(new Field("field_z", string, false, false, null, null, false));
+    item.getFields().add(new Field("fieldZ", string, false, false, null, null, false));
+
+    try {
+      DescriptorValidator.validate(protoFile, "synthetic.proto");
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("invalid proto file google/cloud/synthetic/v1/"));
+      assertTrue(
+          e.getMessage(),
+          e.getMessage()
+              .contains(
+                  "google.cloud.synthetic.v1.ItemA.SHARED: the value of"
+                      + " google.cloud.synthetic.v1.ItemA.SecondEnum conflicts with"
+                      + " google.cloud.synthetic.v1.ItemA.FirstEnum.SHARED"));
+      assertTrue(e.getMessage(), e.getMessage().contains("the JSON name \"fieldZ\" conflicts"));
+    }
+  }
+
+  @Test
+  public void reportsUnresolvedTypes() {
+    ProtoFile protoFile = convert();
+    Message missing = new Message("Missing", true, false, null);
+    protoFile
+        .getMessages()
+        .get("ItemA")
+        .getFields()
+        .add(new Field("missing", missing, false, false, null, null, false));
+    try {
+      DescriptorValidator.validate(protoFile, "synthetic.proto");
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Missing"));
+    }
+  }
+
+  @Test
+  public void findsProblemsTheRuntimeAccepts() {
+    FileDescriptorProto fileProto =
+        FileDescriptorProto.newBuilder()
+            .setName("a/b/c.proto")
+            .setPackage("a.b")
+            .addEnumType(
+                EnumDescriptorProto.newBuilder()
+                    .setName("Color")
+                    .addValue(enumValue("RED", 1))
+                    .addValue(enumValue("BLUE", 1)))
+            .addMessageType(
+                DescriptorProto.newBuilder()
+                    .setName("Item")
+                    .addField(field("reserved", 19500))
+                    .addField(field("huge", 1 << 29)))
+            .build();
+
+    assertEquals(
+        Arrays.asList(
+            "a.b.Color: the first enum value must be zero in proto3",
+            "a.b.Color.BLUE: enum value number 1 is already used",
+            "a.b.Item.reserved: field number 19500 is reserved for the protobuf implementation",
+            "a.b.Item.huge: field number 536870912 is out of range"),
+        DescriptorValidator.findProblems(fileProto));
+  }
+
+  private static EnumValueDescriptorProto enumValue(String name, int number) {
+    return EnumValueDescriptorProto.newBuilder().setName(name).setNumber(number).build();
+  }
+
+  private static FieldDescriptorProto field(String name, int number) {
+    return FieldDescriptorProto.newBuilder()
+        .setName(name)
+        .setNumber(number)
+        .setJsonName(DescriptorSetWriter.getJsonName(name))
+        .setType(FieldDescriptorProto.Type.TYPE_STRING)
+        .build();
+  }
+
+  private static ProtoFile convert() {
+    return new DocumentToProtoConverter(
+            SyntheticDocumentGenerator.newBuilder().build().generateDocument(),
+            "synthetic.v1.json",
+            Collections.emptySet(),
+            Collections.emptySet(),
+            "https://cloud.google.com",
+            false,
+            null,
+            "")
+        .getProtoFile();
+  }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.cloud.discotoproto3converter.disco.DiscoveryNode;
+import com.google.cloud.discotoproto3converter.disco.Document;
+import com.google.cloud.discotoproto3converter.disco.SyntheticDocumentGenerator;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class DocumentToProtoConverterTest {
+  // Deep enough to overflow the default thread stack when converting schemas recursively.
+  private static final int NESTING_DEPTH = 3000;
+
+  @Test
+  public void convertsDeeplyNestedSchemas() throws InterruptedException {
+    SyntheticDocumentGenerator generator =
+        SyntheticDocumentGenerator.newBuilder()
+            .setSchemas(1)
+            .setResources(1)
+            .setNestingDepth(NESTING_DEPTH)
+            .build();
+    // Reading the Discovery document is still recursive, so it is done with a larger stack.
+    AtomicReference<Document> document = new AtomicReference<>();
+    Thread reader =
+        new Thread(null, () -> document.set(generator.generateDocument()), "reader", 1L << 26);
+    reader.start();
+    reader.join();
+    assertNotNull(document.get());
+
+    ProtoFile protoFile = convert(document.get());
+
+    long nestedMessages =
+        protoFile
+            .getMessages()
+            .keySet()
+            .stream()
+            .filter(name -> name.startsWith("NestedALevel"))
+            .count();
+    assertEquals(NESTING_DEPTH, nestedMessages);
+  }
+
+  @Test
+  public void convertsUnresolvedReferencesToEmptyMessages() {
+    ObjectNode root = SyntheticDocumentGenerator.newBuilder().build().generateJson();
+    ((ObjectNode) root.get("schemas").get("ItemA").get("properties"))
+        .putObject("missing")
+        .put("$ref", "Missing");
+    Document document = Document.from(new DiscoveryNode(root));
+    assertEquals(
+        Collections.singletonMap("ItemA", Collections.singleton("Missing")),
+        document.dependencyGraph().danglingReferences());
+
+    ProtoFile protoFile = convert(document);
+    Field missing =
+        protoFile
+            .getMessages()
+            .get("ItemA")
+            .getFields()
+            .stream()
+            .filter(field -> field.getName().equals("missing"))
+            .findFirst()
+            .get();
+    assertEquals(protoFile.getMessages().get("Missing"), missing.getValueType());
+    assertTrue(missing.getValueType().getFields().isEmpty());
+  }
+
+  @Test
+  public void prunesMessagesOfIgnoredServices() {
+    Document document = SyntheticDocumentGenerator.newBuilder().build().generateDocument();
+    Set<String> ignoredServices =
+        new HashSet<>(Arrays.asList("CollectionB", "CollectionC", "CollectionD"));
+    ProtoFile unpruned = convert(document, ignoredServices, null, false, Collections.emptySet());
+    ProtoFile pruned = convert(document, ignoredServices, null, true, Collections.emptySet());
+
+    // CollectionA uses ItemA and (in its custom method) ItemG, which references ItemC.
+    assertEquals(new HashSet<>(Arrays.asList("ItemA", "ItemC", "ItemG")), topLevelItems(pruned));
+    assertTrue(pruned.getMessages().containsKey("Operation"));
+    for (Map.Entry<String, Message> entry : pruned.getMessages().entrySet()) {
+      assertEquals(unpruned.getMessages().get(entry.getKey()), entry.getValue());
+    }
+    assertEquals(unpruned.getServices().keySet(), pruned.getServices().keySet());
+  }
+
+  @Test
+  public void keepsMessagesOfPreviousProtoFile() {
+    Document document = SyntheticDocumentGenerator.newBuilder().build().generateDocument();
+    Set<String> ignoredServices =
+        new HashSet<>(Arrays.asList("CollectionB", "CollectionC", "CollectionD"));
+    ProtoFile pruned =
+        convert(document, ignoredServices, null, true, Collections.singleton("ItemT"));
+
+    // ItemT references ItemJ, which references ItemE, which references ItemB.
+    assertEquals(
+        new HashSet<>(Arrays.asList("ItemA", "ItemB", "ItemC", "ItemE", "ItemG", "ItemJ", "ItemT")),
+        topLevelItems(pruned));
+  }
+
+  @Test
+  public void keepsSchemasNamedInInputConfig() {
+    Document document = SyntheticDocumentGenerator.newBuilder().build().generateDocument();
+    Set<String> ignoredServices =
+        new HashSet<>(Arrays.asList("CollectionB", "CollectionC", "CollectionD"));
+    String inputConfig =
+        "{\"inlineSchemas\": [{\"schema\": \"\", \"locations\": {"
+            + "\"NestedDLevelA\": [\"schemas.ItemD.nestedDLevelA\"]}}]}";
+    ProtoFile pruned =
+        convert(document, ignoredServices, inputConfig, true, Collections.emptySet());
+
+    // ItemD references ItemB.
+    assertEquals(
+        new HashSet<>(Arrays.asList("ItemA", "ItemB", "ItemC", "ItemD", "ItemG")),
+        topLevelItems(pruned));
+    assertTrue(pruned.getMessages().containsKey("NestedDLevelA"));
+  }
+
+  @Test
+  public void convertsOnlyAllowlistedResources() {
+    SyntheticDocumentGenerator generator = SyntheticDocumentGenerator.newBuilder().build();
+    Set<String> allowedResources =
+        new HashSet<>(
+            Arrays.asList("collectionA", "globalOperations", "regionOperations", "zoneOperations"));
+    Document document =
+        Document.from(
+            new DiscoveryNode(generator.generateJson()),
+            allowedResources::contains,
+            Collections.emptySet());
+    assertEquals(
+        new HashSet<>(Arrays.asList("ItemA", "ItemC", "ItemG", "Operation")),
+        document.schemas().keySet());
+    assertEquals(allowedResources, document.resources().keySet());
+
+    // Same as reading the whole document and pruning the messages of the other services.
+    Set<String> ignoredServices =
+        new HashSet<>(Arrays.asList("CollectionB", "CollectionC", "CollectionD"));
+    ProtoFile pruned =
+        convert(generator.generateDocument(), ignoredServices, null, true, Collections.emptySet());
+    assertEquals(render(pruned), render(convert(document)));
+
+    // ItemT references ItemJ, which references ItemE, which references ItemB.
+    document =
+        Document.from(
+            new DiscoveryNode(generator.generateJson()),
+            allowedResources::contains,
+            Arrays.asList("ItemT", "Unknown"));
+    assertEquals(
+        new HashSet<>(
+            Arrays.asList(
+                "ItemA", "ItemB", "ItemC", "ItemE", "ItemG", "ItemJ", "ItemT", "Operation")),
+        document.schemas().keySet());
+  }
+
+  @Test(timeout = 60000)
+  public void checksRecursiveMessagesForAnyFields() {
+    ObjectNode root = SyntheticDocumentGenerator.newBuilder().build().generateJson();
+    ObjectNode schemas = (ObjectNode) root.get("schemas");
+    // ItemA references itself, and ItemA and ItemB reference each other.
+    properties(schemas, "ItemA").putObject("self").put("$ref", "ItemA");
+    properties(schemas, "ItemA").putObject("partner").put("$ref", "ItemB");
+    properties(schemas, "ItemB").putObject("partner").put("$ref", "ItemA");
+
+    ProtoFile protoFile = convert(Document.from(new DiscoveryNode(root)));
+    assertFalse(protoFile.HasAnyFields());
+
+    // An Any field in a recursive message is still found.
+    properties(schemas, "ItemB").putObject("payload").put("type", "any");
+    try {
+      convert(Document.from(new DiscoveryNode(root)));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(
+          "illegal ANY type not under \"*.error.details\": "
+              + "ActionACollectionARequest.item_g_resource.ref_c.ref_a.partner.payload",
+          e.getMessage());
+    }
+  }
+
+  @Test
+  public void findsAnyFieldsOfMessagesSharedByMethods() {
+    ObjectNode root = SyntheticDocumentGenerator.newBuilder().build().generateJson();
+    ObjectNode schemas = (ObjectNode) root.get("schemas");
+    // The Operation returned by all the mutating methods has error details.
+    ObjectNode details = properties(properties(schemas, "Operation"), "error").putObject("details");
+    details.put("type", "array");
+    details.putObject("items").put("type", "any");
+
+    ProtoFile protoFile = convert(Document.from(new DiscoveryNode(root)));
+    assertTrue(protoFile.HasAnyFields());
+  }
+
+  @Test
+  public void reportsAnyFieldsAllowedOnlyUnderErrorWhereverReached() {
+    ObjectNode root = SyntheticDocumentGenerator.newBuilder().build().generateJson();
+    ObjectNode schemas = (ObjectNode) root.get("schemas");
+    ObjectNode errorDetails = schemas.putObject("ErrorDetails");
+    errorDetails.put("id", "ErrorDetails");
+    errorDetails.put("type", "object");
+    errorDetails.putObject("properties").putObject("details").put("type", "any");
+    // ErrorDetails is checked under "error" through ItemA first, which must not prevent checking it
+    // again when it is reached directly through ItemB.
+    properties(schemas, "ItemA").putObject("error").put("$ref", "ErrorDetails");
+    properties(schemas, "ItemB").putObject("lastError").put("$ref", "ErrorDetails");
+
+    try {
+      convert(Document.from(new DiscoveryNode(root)));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(
+          "illegal ANY type not under \"*.error.details\": "
+              + "ActionACollectionBRequest.item_h_resource.ref_d.ref_b.last_error.details",
+          e.getMessage());
+    }
+  }
+
+  @Test
+  public void breaksTiesBetweenPollingServicesConsistently() {
+    ObjectNode root = SyntheticDocumentGenerator.newBuilder().build().generateJson();
+    // The regional insert method of collectionB also has a zone, so both RegionOperations (polled
+    // by project and region) and ZoneOperations (polled by project and zone) match two of its
+    // fields. The tie goes to the polling service visited first.
+    ObjectNode insert =
+        (ObjectNode) root.get("resources").get("collectionB").get("methods").get("insert");
+    insert
+        .withObjectProperty("parameters")
+        .set("zone", insert.get("parameters").get("region").deepCopy());
+
+    ProtoFile protoFile = convert(Document.from(new DiscoveryNode(root)));
+
+    GrpcMethod method =
+        protoFile
+            .getServices()
+            .get("CollectionB")
+            .getMethods()
+            .stream()
+            .filter(m -> "Insert".equals(m.getName()))
+            .findFirst()
+            .get();
+    Option operationService =
+        method
+            .getOptions()
+            .stream()
+            .filter(o -> "google.cloud.operation_service".equals(o.getName()))
+            .findFirst()
+            .get();
+    assertEquals("RegionOperations", operationService.getProperties().get(""));
+  }
+
+  private static ObjectNode properties(ObjectNode schemas, String name) {
+    return (ObjectNode) schemas.get(name).get("properties");
+  }
+
+  private static Set<String> topLevelItems(ProtoFile protoFile) {
+    return protoFile
+        .getMessages()
+        .keySet()
+        .stream()
+        .filter(name -> name.startsWith("Item"))
+        .collect(Collectors.toSet());
+  }
+
+  private static String render(ProtoFile protoFile) {
+    StringWriter sw = new StringWriter();
+    try (PrintWriter pw = new PrintWriter(sw)) {
+      new Proto3Writer().writeToFile(pw, protoFile, true);
+    }
+    return sw.toString();
+  }
+
+  private static ProtoFile convert(
+      Document document,
+      Set<String> serviceIgnoreSet,
+      String inputConfig,
+      boolean pruneUnreachableMessages,
+      Set<String> messageKeepSet) {
+    return new DocumentToProtoConverter(
+            document,
+            "synthetic.v1.json",
+            serviceIgnoreSet,
+            Collections.emptySet(),
+            "https://cloud.google.com",
+            true,
+            inputConfig,
+            "",
+            pruneUnreachableMessages,
+            messageKeepSet)
+        .getProtoFile();
+  }
+
+  private static ProtoFile convert(Document document) {
+    return new DocumentToProtoConverter(
+            document,
+            "synthetic.v1.json",
+            Collections.emptySet(),
+            Collections.emptySet(),
+            "https://cloud.google.com",
+            true,
+            null,
+            "")
+        .getProtoFile();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MessageRenderCacheTest {
+  private Path cacheDir;
+  private String content;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDir = Files.createTempDirectory("disco-to-proto3-converter-render-cache");
+    content =
+        new String(
+            Files.readAllBytes(
+                Paths.get(
+                    "src",
+                    "test",
+                    "resources",
+                    "google",
+                    "cloud",
+                    "compute",
+                    "v1small",
+                    "compute.proto.baseline")),
+            StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void reusesUnchangedMessages() throws IOException {
+    ProtoFile protoFile = new ProtoParser(content).getProtoFile();
+    int messageCount = protoFile.getMessages().size();
+    String expected = render(protoFile, null, true);
+
+    MessageRenderCache cache =
+        MessageRenderCache.load(cacheDir, MessageRenderCache.DEFAULT_MAX_BYTES);
+    assertEquals(expected, render(protoFile, cache, true));
+    assertEquals(0, cache.getHits());
+    assertEquals(messageCount, cache.getMisses());
+    cache.save();
+
+    // Only the changed message is rendered again.
+    Message address = protoFile.getMessages().get("Address");
+    address.appendDescription(" Changed.");
+    expected = render(protoFile, null, true);
+    cache = MessageRenderCache.load(cacheDir, MessageRenderCache.DEFAULT_MAX_BYTES);
+    assertEquals(expected, render(protoFile, cache, true));
+    assertEquals(messageCount - 1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    // Descriptions are not part of the text without comments, so that text is shared.
+    cache = MessageRenderCache.load(cacheDir, MessageRenderCache.DEFAULT_MAX_BYTES);
+    assertEquals(render(protoFile, null, false), render(protoFile, cache, false));
+    assertEquals(0, cache.getHits());
+    assertEquals(render(protoFile, null, false), render(protoFile, cache, false));
+    assertEquals(messageCount, cache.getHits());
+  }
+
+  @Test
+  public void ignoresCorruptedCacheFile() throws IOException {
+    ProtoFile protoFile = new ProtoParser(content).getProtoFile();
+    MessageRenderCache cache =
+        MessageRenderCache.load(cacheDir, MessageRenderCache.DEFAULT_MAX_BYTES);
+    render(protoFile, cache, true);
+    cache.save();
+
+    // Flip a byte of the rendered text, which only the checksum catches.
+    Path cacheFile = cacheDir.resolve(MessageRenderCache.CACHE_FILE_NAME);
+    byte[] bytes = Files.readAllBytes(cacheFile);
+    int index = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("message Address {");
+    bytes[index] = 'M';
+    Files.write(cacheFile, bytes);
+
+    cache = MessageRenderCache.load(cacheDir, MessageRenderCache.DEFAULT_MAX_BYTES);
+    assertEquals(render(protoFile, null, true), render(protoFile, cache, true));
+    assertEquals(0, cache.getHits());
+  }
+
+  @Test
+  public void keepsUsedEntriesWithinTheSizeLimit() throws IOException {
+    ProtoFile protoFile = new ProtoParser(content).getProtoFile();
+    Path cacheFile = cacheDir.resolve(MessageRenderCache.CACHE_FILE_NAME);
+    MessageRenderCache cache =
+        MessageRenderCache.load(cacheDir, MessageRenderCache.DEFAULT_MAX_BYTES);
+    render(protoFile, cache, false);
+    cache.save();
+    // The file is larger than the text it contains.
+    long limit = Files.size(cacheFile);
+    render(protoFile, cache, true);
+    cache.save();
+
+    // With a smaller limit, the entries used first are kept.
+    cache = MessageRenderCache.load(cacheDir, limit);
+    render(protoFile, cache, false);
+    cache.save();
+    assertTrue(Files.size(cacheFile) <= limit);
+    Map<String, String> entries =
+        MessageRenderCache.read(new ByteArrayInputStream(Files.readAllBytes(cacheFile)));
+    for (Message message : protoFile.getMessages().values()) {
+      assertTrue(entries.containsKey(MessageRenderCache.key(message, false)));
+    }
+    assertTrue(entries.size() < 2 * protoFile.getMessages().size());
+  }
+
+  private static String render(
+      ProtoFile protoFile, MessageRenderCache cache, boolean outputComments) {
+    StringWriter sw = new StringWriter();
+    try (PrintWriter pw = new PrintWriter(sw)) {
+      new Proto3Writer(cache).writeToFile(pw, protoFile, outputComments);
+    }
+    return sw.toString();
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class PassManagerTest {
+
+  @Test
+  public void runsOnlyPassesNeededForRequestedOutputs() {
+    List<String> log = Collections.synchronizedList(new ArrayList<>());
+    PassManager passManager = new PassManager(false);
+    passManager.addPass(
+        "a", PassManager.resources(), PassManager.resources("x"), () -> log.add("a"));
+    passManager.addPass(
+        "b", PassManager.resources("x"), PassManager.resources("y"), () -> log.add("b"));
+    passManager.addPass(
+        "c", PassManager.resources("x"), PassManager.resources("z"), () -> log.add("c"));
+
+    passManager.run(PassManager.resources("y"));
+    assertEquals(Arrays.asList("a", "b"), log);
+    assertEquals(Arrays.asList("a", "b"), new ArrayList<>(passManager.getTimingsNanos().keySet()));
+
+    // Passes which already ran are not run again.
+    passManager.run(PassManager.resources("y", "z"));
+    assertEquals(Arrays.asList("a", "b", "c"), log);
+  }
+
+  @Test(timeout = 10000)
+  public void runsIndependentPassesConcurrently() {
+    // Each of the two independent passes waits for the other one to start, which can only succeed
+    // if they run concurrently.
+    CountDownLatch started = new CountDownLatch(2);
+    Runnable awaitOther =
+        () -> {
+          started.countDown();
+          try {
+            if (!started.await(5, TimeUnit.SECONDS)) {
+              throw new IllegalStateException("passes did not run concurrently");
+            }
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        };
+    PassManager passManager = new PassManager(true);
+    passManager.addPass("a", PassManager.resources("x"), PassManager.resources("y"), awaitOther);
+    passManager.addPass("b", PassManager.resources("x"), PassManager.resources("z"), awaitOther);
+
+    passManager.run(PassManager.resources("y", "z"));
+    assertEquals(2, passManager.getTimingsNanos().size());
+  }
+
+  @Test
+  public void reportsFailureOfEarliestPass() {
+    PassManager passManager = new PassManager(true);
+    passManager.addPass(
+        "a",
+        PassManager.resources("x"),
+        PassManager.resources("y"),
+        () -> {
+          try {
+            Thread.sleep(100);
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          throw new IllegalArgumentException("a failed");
+        });
+    passManager.addPass(
+        "b",
+        PassManager.resources("x"),
+        PassManager.resources("z"),
+        () -> {
+          throw new IllegalArgumentException("b failed");
+        });
+
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> passManager.run(PassManager.resources("y", "z")));
+    assertEquals("a failed", e.getMessage());
+  }
+
+  @Test
+  public void joinsConcurrentPassesBeforeRethrowingErrors() {
+    AtomicBoolean done = new AtomicBoolean();
+    PassManager passManager = new PassManager(true);
+    passManager.addPass(
+        "a",
+        PassManager.resources("x"),
+        PassManager.resources("y"),
+        () -> {
+          throw new StackOverflowError("a failed");
+        });
+    passManager.addPass(
+        "b",
+        PassManager.resources("x"),
+        PassManager.resources("z"),
+        () -> {
+          try {
+            Thread.sleep(100);
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          done.set(true);
+        });
+
+    StackOverflowError e =
+        assertThrows(
+            StackOverflowError.class, () -> passManager.run(PassManager.resources("y", "z")));
+    assertEquals("a failed", e.getMessage());
+    assertTrue(done.get());
+  }
+}
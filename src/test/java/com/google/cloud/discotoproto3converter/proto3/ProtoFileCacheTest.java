@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProtoFileCacheTest {
+  private Path cacheDir;
+  private String content;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDir = Files.createTempDirectory("disco-to-proto3-converter-cache");
+    content =
+        new String(
+            Files.readAllBytes(
+                Paths.get(
+                    "src",
+                    "test",
+                    "resources",
+                    "google",
+                    "cloud",
+                    "compute",
+                    "v1small",
+                    "compute.proto.baseline")),
+            StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void snapshotRoundTrip() throws IOException {
+    ProtoFileCache cache = new ProtoFileCache(cacheDir);
+    ProtoFile parsed = cache.getOrParse(content);
+    Path snapshotPath = cacheDir.resolve(ProtoFileCache.snapshotKey(content) + ".protomodel");
+    assertTrue(Files.isRegularFile(snapshotPath));
+
+    ProtoFile loaded = cache.getOrParse(content);
+
+    assertEquals(render(new ProtoParser(content).getProtoFile()), render(loaded));
+    assertEquals(render(parsed), render(loaded));
+    assertEquals(parsed.getMessages().keySet(), loaded.getMessages().keySet());
+    for (Message message : parsed.getMessages().values()) {
+      assertEquals(
+          MessageFingerprint.of(message, true),
+          MessageFingerprint.of(loaded.getMessages().get(message.getName()), true));
+    }
+    // The fingerprints used for merging are loaded along with the model.
+    assertEquals(parsed.getMessageFingerprints(), loaded.getMessageFingerprints());
+  }
+
+  @Test
+  public void corruptedSnapshotFallsBackToParsing() throws IOException {
+    ProtoFileCache cache = new ProtoFileCache(cacheDir);
+    String expected = render(cache.getOrParse(content));
+    Path snapshotPath = cacheDir.resolve(ProtoFileCache.snapshotKey(content) + ".protomodel");
+    byte[] snapshot = Files.readAllBytes(snapshotPath);
+    Files.write(snapshotPath, Arrays.copyOf(snapshot, snapshot.length / 2));
+
+    assertEquals(expected, render(cache.getOrParse(content)));
+    // The broken snapshot is replaced with a valid one.
+    assertEquals(snapshot.length, Files.size(snapshotPath));
+  }
+
+  @Test
+  public void snapshotWithDifferentTagIsIgnored() throws IOException {
+    // A snapshot written by a build with a different parser or model, in which the Address message
+    // was parsed differently.
+    ProtoFile stale = new ProtoParser(content).getProtoFile();
+    stale.getMessages().get("Address").appendDescription(" Stale.");
+    Path snapshotPath = cacheDir.resolve(ProtoFileCache.snapshotKey(content) + ".protomodel");
+    try (OutputStream os = Files.newOutputStream(snapshotPath)) {
+      ProtoFileCache.write(os, stale, "0123456789abcdef");
+    }
+    assertNotEquals("0123456789abcdef", ProtoFileCache.MODEL_TAG);
+
+    ProtoFile loaded = new ProtoFileCache(cacheDir).getOrParse(content);
+    assertEquals(render(new ProtoParser(content).getProtoFile()), render(loaded));
+    // The stale snapshot is replaced with one of the current build.
+    try (InputStream is = Files.newInputStream(snapshotPath)) {
+      assertEquals(render(loaded), render(ProtoFileCache.read(is)));
+    }
+  }
+
+  private static String render(ProtoFile protoFile) {
+    StringWriter sw = new StringWriter();
+    try (PrintWriter pw = new PrintWriter(sw)) {
+      new Proto3Writer().writeToFile(pw, protoFile, true);
+    }
+    return sw.toString();
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.Test;
+
+public class ProtoMergerTest {
+  private static final String OLD_PROTO =
+      "package google.cloud.test.v1;\n"
+          + "\n"
+          + "message Unchanged {\n"
+          + "  optional string name = 1;\n"
+          + "\n"
+          + "}\n"
+          + "\n"
+          + "message Changed {\n"
+          + "  optional string kept = 1;\n"
+          + "\n"
+          + "  optional string removed = 2;\n"
+          + "\n"
+          + "  optional Unchanged ref = 3 [(google.api.field_behavior) = REQUIRED];\n"
+          + "\n"
+          + "}\n";
+
+  private static final String NEW_PROTO =
+      "package google.cloud.test.v1;\n"
+          + "\n"
+          + "message Unchanged {\n"
+          + "  optional string name = 1;\n"
+          + "\n"
+          + "}\n"
+          + "\n"
+          + "message Changed {\n"
+          + "  optional string kept = 1;\n"
+          + "\n"
+          + "  optional Unchanged ref = 3;\n"
+          + "\n"
+          + "}\n";
+
+  @Test
+  public void fingerprintIgnoresDescriptionsUnlessRequested() {
+    Message first = new Message("Foo", false, false, "first description");
+    first
+        .getFields()
+        .add(new Field("bar", Message.PRIMITIVES.get("string"), false, true, null, "bar", false));
+    Message second = new Message("Foo", false, false, "second description");
+    second
+        .getFields()
+        .add(new Field("bar", Message.PRIMITIVES.get("string"), false, true, null, null, false));
+
+    assertEquals(MessageFingerprint.of(first, false), MessageFingerprint.of(second, false));
+    assertNotEquals(MessageFingerprint.of(first, true), MessageFingerprint.of(second, true));
+
+    second.getFields().iterator().next().getOptions().add(new Option("google.api.field_behavior"));
+    assertNotEquals(MessageFingerprint.of(first, false), MessageFingerprint.of(second, false));
+  }
+
+  @Test
+  public void mergeOnlyTouchesChangedMessages() {
+    ProtoFile oldProto = new ProtoParser(OLD_PROTO).getProtoFile();
+    ProtoFile newProto = new ProtoParser(NEW_PROTO).getProtoFile();
+    Message unchanged = newProto.getMessages().get("Unchanged");
+    Field unchangedField = unchanged.getFields().first();
+
+    assertEquals(1, new ProtoMerger().merge(newProto, oldProto));
+
+    // Structurally identical messages are left alone.
+    assertSame(unchangedField, unchanged.getFields().first());
+
+    // The removed field is restored, and missing options are copied over, with references pointing
+    // to the new model's messages.
+    Message changed = newProto.getMessages().get("Changed");
+    assertEquals(
+        MessageFingerprint.of(oldProto.getMessages().get("Changed"), false),
+        MessageFingerprint.of(changed, false));
+    for (Field field : changed.getFields()) {
+      if ("ref".equals(field.getName())) {
+        assertSame(unchanged, field.getValueType());
+      }
+    }
+  }
+
+  @Test
+  public void mergeIdenticalProtosIsNoOp() throws IOException {
+    String content = readComputeBaseline();
+    ProtoFile oldProto = new ProtoParser(content).getProtoFile();
+    ProtoFile newProto = new ProtoParser(content).getProtoFile();
+
+    assertEquals(0, new ProtoMerger().merge(newProto, oldProto));
+
+    for (Message oldMessage : oldProto.getMessages().values()) {
+      assertEquals(
+          MessageFingerprint.of(oldMessage, false),
+          MessageFingerprint.of(newProto.getMessages().get(oldMessage.getName()), false));
+    }
+  }
+
+  @Test
+  public void mergeSkipsAllButTheChangedMessage() throws IOException {
+    String content = readComputeBaseline();
+    ProtoFile oldProto = new ProtoParser(content).getProtoFile();
+    ProtoFile newProto = new ProtoParser(content).getProtoFile();
+    Message address = newProto.getMessages().get("Address");
+    address.getFields().removeIf(field -> "name".equals(field.getName()));
+
+    assertEquals(1, new ProtoMerger().merge(newProto, oldProto));
+    assertTrue(address.getFields().stream().anyMatch(field -> "name".equals(field.getName())));
+  }
+
+  private static String readComputeBaseline() throws IOException {
+    return new String(
+        Files.readAllBytes(
+            Paths.get(
+                "src",
+                "test",
+                "resources",
+                "google",
+                "cloud",
+                "compute",
+                "v1small",
+                "compute.proto.baseline")),
+        StandardCharsets.UTF_8);
+  }
+}
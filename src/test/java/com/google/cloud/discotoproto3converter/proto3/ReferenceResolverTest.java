@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class ReferenceResolverTest {
+  private static final String RECURSIVE_PROTO =
+      "package google.cloud.test.v1;\n"
+          + "\n"
+          + "message Tree {\n"
+          + "  repeated Tree children = 1;\n"
+          + "\n"
+          + "  optional Leaf leaf = 2;\n"
+          + "\n"
+          + "}\n"
+          + "\n"
+          + "message Leaf {\n"
+          + "  optional Tree parent = 1;\n"
+          + "\n"
+          + "  optional Leaf self = 2;\n"
+          + "\n"
+          + "}\n";
+
+  @Test
+  public void selfAndMutuallyRecursiveMessages() {
+    ProtoFile protoFile = new ProtoParser(RECURSIVE_PROTO).getProtoFile();
+    Message tree = protoFile.getMessages().get("Tree");
+    Message leaf = protoFile.getMessages().get("Leaf");
+
+    assertSame(tree, field(tree, "children").getValueType());
+    assertSame(leaf, field(tree, "leaf").getValueType());
+    assertSame(tree, field(leaf, "parent").getValueType());
+    assertSame(leaf, field(leaf, "self").getValueType());
+  }
+
+  @Test(timeout = 10000)
+  public void deeplyNestedInlineMessages() {
+    // A chain of inline (non-reference) messages much deeper than the call stack would allow for a
+    // recursive traversal, ending with a reference back to the registered root.
+    int depth = 200000;
+    Message root = new Message("Root", false, false, null);
+    Message current = root;
+    for (int i = 0; i < depth; i++) {
+      Message next = new Message("Inline" + i, false, false, null);
+      current.getFields().add(new Field("next", next, false, true, null, null, false));
+      current = next;
+    }
+    current.getFields().add(new Field("root", ref("Root"), false, true, null, null, false));
+    current.getFields().add(new Field("missing", ref("Missing"), false, true, null, null, false));
+
+    Map<String, Message> messages = new TreeMap<>();
+    messages.put(root.getName(), root);
+    ReferenceResolver.resolveReferences(messages);
+
+    assertSame(root, field(current, "root").getValueType());
+    assertNull(field(current, "missing").getValueType());
+  }
+
+  @Test(timeout = 10000)
+  public void inlineMessagesReachableThroughExponentiallyManyPaths() {
+    // Every level links to the next one twice, so the last level is reachable through 2^levels
+    // distinct paths, each of which used to be walked separately.
+    int levels = 64;
+    Map<String, Message> messages = new TreeMap<>();
+    Message root = new Message("Root", false, false, null);
+    messages.put(root.getName(), root);
+    Message current = root;
+    for (int i = 0; i < levels; i++) {
+      Message next = new Message("Level" + i, false, false, null);
+      current.getFields().add(new Field("left", next, false, true, null, null, false));
+      current.getFields().add(new Field("right", next, false, true, null, null, false));
+      if (i % 2 == 0) {
+        // Register every other level, as inline messages are registered by the converter as well.
+        messages.put(next.getName(), next);
+      }
+      current = next;
+    }
+    current.getFields().add(new Field("root", ref("Root"), false, true, null, null, false));
+
+    ReferenceResolver.resolveReferences(messages);
+
+    assertSame(root, field(current, "root").getValueType());
+  }
+
+  private static Message ref(String name) {
+    return new Message(name, true, false, null);
+  }
+
+  private static Field field(Message message, String name) {
+    for (Field field : message.getFields()) {
+      if (name.equals(field.getName())) {
+        return field;
+      }
+    }
+    throw new IllegalArgumentException(name + " not found in " + message.getName());
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.cloud.discotoproto3converter.proto3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.discotoproto3converter.disco.SyntheticDocumentGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class ShardedProto3WriterTest {
+  private static final Pattern MESSAGE_PATTERN = Pattern.compile("(?m)^message (\\w+) \\{");
+  private static final String RESOURCES_IMPORT =
+      "import \"google/cloud/synthetic/v1/synthetic_resources.proto\";";
+
+  @Test
+  public void writesSharedMessagesAndOneFilePerService() {
+    ProtoFile protoFile = convert();
+    Map<String, String> shards =
+        new ShardedProto3Writer().writeShards(protoFile, "synthetic", true);
+
+    assertEquals(
+        Arrays.asList(
+            "synthetic_resources.proto",
+            "collection_a.proto",
+            "collection_b.proto",
+            "collection_c.proto",
+            "collection_d.proto",
+            "global_operations.proto",
+            "region_operations.proto",
+            "zone_operations.proto"),
+        new ArrayList<>(shards.keySet()));
+
+    // Every message is written exactly once.
+    List<String> messages = new ArrayList<>();
+    for (String content : shards.values()) {
+      messages.addAll(messageNames(content));
+    }
+    Collections.sort(messages);
+    assertEquals(new ArrayList<>(protoFile.getMessages().keySet()), messages);
+
+    // The items and the operation are used by several services, the requests by one.
+    String resources = shards.get("synthetic_resources.proto");
+    assertTrue(messageNames(resources).containsAll(Arrays.asList("ItemA", "Operation")));
+    assertFalse(resources.contains("import \"google/cloud/synthetic"));
+    assertFalse(resources.contains("service "));
+    assertTrue(resources.contains("import \"google/cloud/extended_operations.proto\";"));
+
+    String collectionA = shards.get("collection_a.proto");
+    assertTrue(messageNames(collectionA).contains("GetCollectionARequest"));
+    assertTrue(collectionA.contains(RESOURCES_IMPORT));
+    assertTrue(collectionA.contains("service CollectionA {"));
+    for (String content : shards.values()) {
+      assertFalse(content.contains("import \"google/cloud/synthetic/v1/collection"));
+    }
+  }
+
+  @Test
+  public void assignsMessagesReferencedByOneServiceToIt() {
+    ProtoFile protoFile = convert();
+    Message request = protoFile.getMessages().get("GetCollectionARequest");
+    Message otherRequest = protoFile.getMessages().get("GetCollectionBRequest");
+    Message helper = new Message("CollectionAHelper", false, false, null);
+    request.getFields().add(new Field("helper", helper, false, false, null, null, false));
+    protoFile.getMessages().put(helper.getName(), helper);
+    Message orphan = new Message("Orphan", false, false, null);
+    orphan.getFields().add(new Field("request", otherRequest, false, false, null, null, false));
+    protoFile.getMessages().put(orphan.getName(), orphan);
+
+    Map<String, String> owners = ShardedProto3Writer.assignMessages(protoFile);
+    assertEquals("CollectionA", owners.get("CollectionAHelper"));
+    assertEquals("CollectionA", owners.get("GetCollectionARequest"));
+    assertEquals("CollectionC", owners.get("GetCollectionCRequest"));
+    assertEquals("", owners.get("Operation"));
+    // Messages not used by any service are shared, and so are the messages they reference.
+    assertEquals("", owners.get("Orphan"));
+    assertEquals("", owners.get("GetCollectionBRequest"));
+  }
+
+  private static List<String> messageNames(String content) {
+    List<String> names = new ArrayList<>();
+    Matcher matcher = MESSAGE_PATTERN.matcher(content);
+    while (matcher.find()) {
+      names.add(matcher.group(1));
+    }
+    return names;
+  }
+
+  private static ProtoFile convert() {
+    return new DocumentToProtoConverter(
+            SyntheticDocumentGenerator.newBuilder().build().generateDocument(),
+            "synthetic.v1.json",
+            Collections.emptySet(),
+            Collections.emptySet(),
+            "https://cloud.google.com",
+            false,
+            null,
+            "")
+        .getProtoFile();
+  }
+}